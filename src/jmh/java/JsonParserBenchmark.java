@@ -0,0 +1,74 @@
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and allocation benchmark of the json parser. Run with {@code gradle jmh};
+ * the gc profiler reports {@code gc.alloc.rate.norm} (bytes allocated per parse), divide
+ * it by the payload length printed during setup to get allocated bytes per parsed byte.
+ * <p>
+ * This benchmark has not been run under JMH yet, so there are no {@code gc.alloc.rate.norm}
+ * numbers for it. The numbers below are the same payloads parsed by
+ * {@code JsonParser.parse(String)}, timed by a plain loop (best of five rounds of 200 ms after a
+ * second of warmup) with the allocation taken from the thread allocation counter (JDK 17, one
+ * thread):
+ * <pre>
+ *                                  before the cursor   cursor, no Pair    current
+ * 100 records, compact (11 KB)     1252 us, 76.8 B/ch  1285 us, 65.8 B/ch   68 us, 9.8 B/ch
+ * 100 records, pretty (17 KB)      1359 us, 49.9 B/ch  1060 us, 42.8 B/ch  121 us, 6.4 B/ch
+ * 10000 records, compact (1.1 MB)   192 ms, 74.8 B/ch   191 ms, 63.7 B/ch   20 ms, 8.1 B/ch
+ * 10000 records, pretty (1.7 MB)    172 ms, 49.3 B/ch   168 ms, 41.9 B/ch   20 ms, 5.4 B/ch
+ * </pre>
+ * The cursor rework alone does not deliver the requested drop of the allocation per parsed byte:
+ * dropping Pair saved about 15% of it and no time, which was dominated by parsing the integers
+ * through BigInteger and the exceptions of its exact conversions. The drop in the last column
+ * comes from the later changes of number parsing and of the reader.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonParserBenchmark {
+  @Param({"100", "10000"})
+  private int records;
+
+  @Param({"STREAMING", "STRUCTURAL_INDEX", "PARALLEL"})
+  private JsonParser.Engine engine;
+
+  private byte[] compact;
+  private byte[] pretty;
+
+  @Setup
+  public void setup() {
+    JsonArray root = new JsonArray();
+    for (int i = 0; i < records; i++) {
+      JsonObject record = new JsonObject();
+      record.add("id", new JsonPrimitive<>(100000 + i));
+      record.add("timestamp", new JsonPrimitive<>(1518350686L + i));
+      record.add("name", new JsonPrimitive<>("record number " + i));
+      record.add("value", new JsonPrimitive<>(i * 0.25));
+      record.add("active", new JsonPrimitive<>(i % 2 == 0));
+      JsonArray tags = new JsonArray();
+      tags.add(new JsonPrimitive<>("tag" + (i % 7)));
+      tags.add(new JsonPrimitive<>("tag" + (i % 11)));
+      record.add("tags", tags);
+      root.add(record);
+    }
+    compact = root.toByteArray();
+    pretty = root.toByteArray(2);
+    System.out.println("payload length: compact " + compact.length + ", pretty " + pretty.length);
+  }
+
+  @Benchmark
+  public void parseCompact(Blackhole blackhole) throws MalformedJsonException {
+    blackhole.consume(JsonParser.parse(compact, engine));
+  }
+
+  @Benchmark
+  public void parsePretty(Blackhole blackhole) throws MalformedJsonException {
+    blackhole.consume(JsonParser.parse(pretty, engine));
+  }
+}
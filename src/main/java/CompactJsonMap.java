@@ -0,0 +1,318 @@
+import java.util.*;
+
+/**
+ * Children of a json object. The keys and values are stored in parallel arrays in the order of
+ * insertion, small objects are searched by a linear scan, larger objects use an open addressing
+ * table of the slots of the keys. Most json objects have only a few keys, so this is smaller and
+ * faster to build than a hash map. Removed keys leave an empty slot behind, the arrays are
+ * compacted once half of the slots are empty, so removals take amortized constant time.
+ *
+ * @see JsonObject
+ */
+class CompactJsonMap extends AbstractMap<String, JsonNode> {
+  // objects with more keys use the hash table instead of a linear scan
+  private static final int LINEAR_SCAN_LIMIT = 8;
+  private static final int INITIAL_CAPACITY = 4;
+  private static final String[] EMPTY_KEYS = {};
+  private static final JsonNode[] EMPTY_VALUES = {};
+
+  // the slots of removed keys hold null keys
+  private String[] keys = EMPTY_KEYS;
+  private JsonNode[] values = EMPTY_VALUES;
+  private int size;
+  // the number of slots used, including the slots of removed keys
+  private int used;
+  // slot + 1 of the key in each bucket (0 for empty buckets), linear probing, at most half full
+  private int[] table;
+
+  private static int bucketOf(Object key, int mask) {
+    int hash = key.hashCode();
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  private int slotOf(Object key) {
+    if (key == null) return -1;
+    if (table == null) {
+      for (int i = 0; i < used; i++) {
+        if (key.equals(keys[i])) return i;
+      }
+      return -1;
+    }
+    int mask = table.length - 1;
+    for (int bucket = bucketOf(key, mask); table[bucket] != 0; bucket = (bucket + 1) & mask) {
+      int slot = table[bucket] - 1;
+      if (keys[slot].equals(key)) return slot;
+    }
+    return -1;
+  }
+
+  private void index(int slot) {
+    int mask = table.length - 1;
+    int bucket = bucketOf(keys[slot], mask);
+    while (table[bucket] != 0) bucket = (bucket + 1) & mask;
+    table[bucket] = slot + 1;
+  }
+
+  private void rebuildTable(int capacity) {
+    table = new int[capacity];
+    for (int i = 0; i < used; i++) {
+      if (keys[i] != null) index(i);
+    }
+  }
+
+  /**
+   * Removes the slot from the table and shifts back the following buckets of its cluster, so
+   * that no key is separated from its bucket by an empty one.
+   */
+  private void unindex(int slot) {
+    int mask = table.length - 1;
+    int hole = bucketOf(keys[slot], mask);
+    while (table[hole] != slot + 1) hole = (hole + 1) & mask;
+    for (int bucket = (hole + 1) & mask; table[bucket] != 0; bucket = (bucket + 1) & mask) {
+      int home = bucketOf(keys[table[bucket] - 1], mask);
+      // the key may move to the hole if the hole lies between its home and its bucket
+      if (((bucket - home) & mask) >= ((bucket - hole) & mask)) {
+        table[hole] = table[bucket];
+        hole = bucket;
+      }
+    }
+    table[hole] = 0;
+  }
+
+  /**
+   * Moves the keys to the front of the arrays, removing the empty slots, and rebuilds the table
+   * for the remaining keys (small objects go back to the linear scan).
+   */
+  private void compact() {
+    int to = 0;
+    for (int from = 0; from < used; from++) {
+      if (keys[from] == null) continue;
+      keys[to] = keys[from];
+      values[to] = values[from];
+      to++;
+    }
+    Arrays.fill(keys, to, used, null);
+    Arrays.fill(values, to, used, null);
+    used = to;
+    if (size > LINEAR_SCAN_LIMIT) rebuildTable(Integer.highestOneBit(size) * 4);
+    else table = null;
+  }
+
+  @Override
+  public JsonNode get(Object key) {
+    int slot = slotOf(key);
+    return slot == -1 ? null : values[slot];
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return slotOf(key) != -1;
+  }
+
+  @Override
+  public JsonNode put(String key, JsonNode value) {
+    if (key == null) throw new NullPointerException("Key must not be null");
+    int slot = slotOf(key);
+    if (slot != -1) {
+      JsonNode previous = values[slot];
+      values[slot] = value;
+      return previous;
+    }
+    if (used == keys.length) {
+      if (size < used) {
+        compact();
+      } else {
+        int capacity = Math.max(INITIAL_CAPACITY, used * 2);
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+      }
+    }
+    keys[used] = key;
+    values[used] = value;
+    used++;
+    size++;
+    if (table != null) {
+      if (size * 2 > table.length) rebuildTable(table.length * 2);
+      else index(used - 1);
+    } else if (size > LINEAR_SCAN_LIMIT) {
+      rebuildTable(Integer.highestOneBit(size) * 4);
+    }
+    return null;
+  }
+
+  @Override
+  public JsonNode remove(Object key) {
+    int slot = slotOf(key);
+    if (slot == -1) return null;
+    JsonNode previous = values[slot];
+    removeAt(slot);
+    // compacted here and not in removeAt, so the slots do not move when removing through an iterator
+    if (size * 2 < used || (table == null && size < used)) compact();
+    return previous;
+  }
+
+  /**
+   * Empties the slot, the slots of the other keys do not change.
+   */
+  private void removeAt(int slot) {
+    if (table != null) unindex(slot);
+    keys[slot] = null;
+    values[slot] = null;
+    size--;
+    while (used > 0 && keys[used - 1] == null) used--;
+  }
+
+  @Override
+  public void clear() {
+    keys = EMPTY_KEYS;
+    values = EMPTY_VALUES;
+    size = 0;
+    used = 0;
+    table = null;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return new AbstractSet<String>() {
+      @Override
+      public Iterator<String> iterator() {
+        return new SlotIterator<String>() {
+          @Override
+          String at(int slot) {
+            return keys[slot];
+          }
+        };
+      }
+
+      @Override
+      public boolean contains(Object key) {
+        return containsKey(key);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  public Collection<JsonNode> values() {
+    return new AbstractCollection<JsonNode>() {
+      @Override
+      public Iterator<JsonNode> iterator() {
+        return new SlotIterator<JsonNode>() {
+          @Override
+          JsonNode at(int slot) {
+            return values[slot];
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  public Set<Entry<String, JsonNode>> entrySet() {
+    return new AbstractSet<Entry<String, JsonNode>>() {
+      @Override
+      public Iterator<Entry<String, JsonNode>> iterator() {
+        return new SlotIterator<Entry<String, JsonNode>>() {
+          @Override
+          Entry<String, JsonNode> at(int slot) {
+            return new CompactEntry(slot);
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  /**
+   * Iterator over the used slots of the arrays in the order of insertion.
+   */
+  private abstract class SlotIterator<E> implements Iterator<E> {
+    private int next = skipEmpty(0);
+    private int last = -1;
+
+    abstract E at(int slot);
+
+    private int skipEmpty(int slot) {
+      while (slot < used && keys[slot] == null) slot++;
+      return slot;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < used;
+    }
+
+    @Override
+    public E next() {
+      if (next >= used) throw new NoSuchElementException();
+      last = next;
+      next = skipEmpty(next + 1);
+      return at(last);
+    }
+
+    @Override
+    public void remove() {
+      if (last == -1) throw new IllegalStateException();
+      removeAt(last);
+      last = -1;
+    }
+  }
+
+  /**
+   * Map entry backed by the slot of the arrays.
+   */
+  private class CompactEntry implements Entry<String, JsonNode> {
+    private final int slot;
+
+    private CompactEntry(int slot) {
+      this.slot = slot;
+    }
+
+    @Override
+    public String getKey() {
+      return keys[slot];
+    }
+
+    @Override
+    public JsonNode getValue() {
+      return values[slot];
+    }
+
+    @Override
+    public JsonNode setValue(JsonNode value) {
+      JsonNode previous = values[slot];
+      values[slot] = value;
+      return previous;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Entry)) return false;
+      Entry<?, ?> entry = (Entry<?, ?>) obj;
+      return getKey().equals(entry.getKey()) && Objects.equals(getValue(), entry.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return getKey().hashCode() ^ Objects.hashCode(getValue());
+    }
+  }
+}
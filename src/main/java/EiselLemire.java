@@ -0,0 +1,105 @@
+import java.math.BigInteger;
+
+/**
+ * Conversion of decimal numbers to the nearest double by the Eisel-Lemire algorithm. The 64-bit
+ * significand is multiplied by a 128-bit approximation of the power of ten, which decides the
+ * correctly rounded result in all but the rare cases too close to the halfway between two doubles.
+ * Those cases, subnormal and infinite results are left to the caller.
+ *
+ * @see JsonReader#nextDouble()
+ */
+class EiselLemire {
+  private static final int MIN_EXPONENT = -348;
+  private static final int MAX_EXPONENT = 347;
+  // the powers of ten normalized to 128 bits (rounded down), split to the high and low 64 bits
+  private static final long[] POWERS_HIGH = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+  private static final long[] POWERS_LOW = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+
+  static {
+    BigInteger mask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+    for (int exponent = MIN_EXPONENT; exponent <= MAX_EXPONENT; exponent++) {
+      BigInteger power;
+      if (exponent >= 0) {
+        power = BigInteger.TEN.pow(exponent);
+        int shift = power.bitLength() - 128;
+        power = shift > 0 ? power.shiftRight(shift) : power.shiftLeft(-shift);
+      } else {
+        BigInteger divisor = BigInteger.TEN.pow(-exponent);
+        power = BigInteger.ONE.shiftLeft(127 + divisor.bitLength()).divide(divisor);
+      }
+      POWERS_HIGH[exponent - MIN_EXPONENT] = power.shiftRight(64).longValue();
+      POWERS_LOW[exponent - MIN_EXPONENT] = power.and(mask).longValue();
+    }
+  }
+
+  private EiselLemire() {
+  }
+
+  /**
+   * Converts significand * 10^exponent to the nearest double.
+   *
+   * @param significand the significand, read as unsigned
+   * @param exponent    the power of ten
+   * @param negative    whether the number is negative
+   * @return the double, or NaN if the result can not be decided here
+   */
+  static double toDouble(long significand, int exponent, boolean negative) {
+    if (significand == 0) return negative ? -0.0 : 0.0;
+    if (exponent < MIN_EXPONENT || exponent > MAX_EXPONENT) return Double.NaN;
+    long powerHigh = POWERS_HIGH[exponent - MIN_EXPONENT];
+    long powerLow = POWERS_LOW[exponent - MIN_EXPONENT];
+
+    int leadingZeros = Long.numberOfLeadingZeros(significand);
+    significand <<= leadingZeros;
+    // floor(log2(10) * exponent) + the bias of the double exponent
+    long binaryExponent = ((217706 * exponent) >> 16) + 64 + 1023 - leadingZeros;
+
+    long high = multiplyHigh(significand, powerHigh);
+    long low = significand * powerHigh;
+    // the low bits of the power matter only if the product may carry into the bits kept
+    if ((high & 0x1FF) == 0x1FF && Long.compareUnsigned(low + significand, significand) < 0) {
+      long lowHigh = multiplyHigh(significand, powerLow);
+      long lowLow = significand * powerLow;
+      long mergedHigh = high;
+      long mergedLow = low + lowHigh;
+      if (Long.compareUnsigned(mergedLow, low) < 0) mergedHigh++;
+      if ((mergedHigh & 0x1FF) == 0x1FF && mergedLow == -1 && Long.compareUnsigned(lowLow + significand, significand) < 0) {
+        return Double.NaN;
+      }
+      high = mergedHigh;
+      low = mergedLow;
+    }
+
+    // keep 54 bits, one more than the double has for the rounding
+    int msb = (int) (high >>> 63);
+    long mantissa = high >>> (msb + 9);
+    binaryExponent -= 1 ^ msb;
+    // exactly halfway between two doubles
+    if (low == 0 && (high & 0x1FF) == 0 && (mantissa & 3) == 1) return Double.NaN;
+
+    mantissa += mantissa & 1;
+    mantissa >>>= 1;
+    if (mantissa >>> 53 > 0) {
+      mantissa >>>= 1;
+      binaryExponent++;
+    }
+    // subnormal or infinite
+    if (binaryExponent <= 0 || binaryExponent >= 0x7FF) return Double.NaN;
+    long bits = binaryExponent << 52 | mantissa & 0x000FFFFFFFFFFFFFL;
+    if (negative) bits |= 0x8000000000000000L;
+    return Double.longBitsToDouble(bits);
+  }
+
+  /**
+   * @return the high 64 bits of the unsigned 128-bit product
+   */
+  private static long multiplyHigh(long x, long y) {
+    long x0 = x & 0xFFFFFFFFL;
+    long x1 = x >>> 32;
+    long y0 = y & 0xFFFFFFFFL;
+    long y1 = y >>> 32;
+    long p01 = x0 * y1;
+    long middle = x1 * y0 + ((x0 * y0) >>> 32) + (p01 & 0xFFFFFFFFL);
+    return x1 * y1 + (middle >>> 32) + (p01 >>> 32);
+  }
+}
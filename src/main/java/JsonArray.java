@@ -1,11 +1,16 @@
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The type Json array.
  */
-public class JsonArray extends JsonNode {
+public class JsonArray extends JsonContainer {
+  // arrays needing more edits are replaced as a whole
+  private static final int MAX_EDITS = 1024;
+  private static final long FINGERPRINT_SEED = 0xBB67AE8584CAA73BL;
+
   private List<JsonNode> children;
 
   /**
@@ -16,12 +21,57 @@ public class JsonArray extends JsonNode {
   }
 
   /**
-   * Instantiates a new Json array with values from the list.
+   * Instantiates a new Json array with values from the list. The list is copied, its later
+   * modifications do not change the json array.
    *
    * @param children the values
    */
   public JsonArray(List<JsonNode> children) {
+    this(new ArrayList<>(children), true);
+  }
+
+  private JsonArray(List<JsonNode> children, boolean attach) {
     this.children = children;
+    if (children instanceof LazyJsonList) {
+      // the lazy elements are attached when they are parsed
+      ((LazyJsonList) children).attachTo(this);
+    } else if (attach) {
+      for (JsonNode child : children) attach(child);
+    }
+  }
+
+  /**
+   * Creates a json array backed by the list, which is not copied. The list must not be modified
+   * other than through the json array.
+   *
+   * @param children the children
+   * @return the json array
+   */
+  static JsonArray wrap(List<JsonNode> children) {
+    // packed numbers are not containers
+    return new JsonArray(children, !(children instanceof PackedNumberList));
+  }
+
+  /**
+   * Creates a json array of the integral numbers. The values are stored packed, the json
+   * primitives are created when the elements are accessed.
+   *
+   * @param values the values
+   * @return the json array
+   */
+  public static JsonArray of(long... values) {
+    return wrap(new PackedNumberList(values.clone()));
+  }
+
+  /**
+   * Creates a json array of the decimal numbers. The values are stored packed, the json
+   * primitives are created when the elements are accessed.
+   *
+   * @param values the values
+   * @return the json array
+   */
+  public static JsonArray of(double... values) {
+    return wrap(new PackedNumberList(values.clone()));
   }
 
   /**
@@ -34,7 +84,13 @@ public class JsonArray extends JsonNode {
   public JsonArray(String jsonArrayString) throws MalformedJsonException {
     JsonNode node = JsonParser.parse(jsonArrayString);
     if (!(node instanceof JsonArray)) throw new MalformedJsonException(jsonArrayString + " is not of type JsonArray");
-    children = ((JsonArray) node).children;
+    JsonArray parsed = (JsonArray) node;
+    children = parsed.children;
+    if (children instanceof PackedNumberList) return;
+    for (JsonNode child : children) {
+      parsed.detach(child);
+      attach(child);
+    }
   }
 
   /**
@@ -44,6 +100,20 @@ public class JsonArray extends JsonNode {
    */
   public void add(JsonNode value) {
     children.add(value);
+    attach(value);
+    modified();
+  }
+
+  /**
+   * Insert value to json array
+   *
+   * @param index the index, where to insert the value
+   * @param value the value
+   */
+  public void add(int index, JsonNode value) {
+    children.add(index, value);
+    attach(value);
+    modified();
   }
 
   /**
@@ -53,7 +123,10 @@ public class JsonArray extends JsonNode {
    * @param value the value
    */
   public void set(int index, JsonNode value) {
-    children.set(index, value);
+    JsonNode previous = children.set(index, value);
+    attach(value);
+    detach(previous);
+    modified();
   }
 
   /**
@@ -63,7 +136,10 @@ public class JsonArray extends JsonNode {
    * @return the removed value
    */
   public JsonNode remove(int index) {
-    return children.remove(index);
+    JsonNode removed = children.remove(index);
+    detach(removed);
+    modified();
+    return removed;
   }
 
   /**
@@ -76,6 +152,34 @@ public class JsonArray extends JsonNode {
     return children.get(index);
   }
 
+  /**
+   * Gets the values of the json array of numbers. Arrays of numbers created by the parser store
+   * the values packed, so this does not create any json primitives.
+   *
+   * @return the values converted to long
+   * @throws ClassCastException if a value is not a number
+   */
+  public long[] toLongArray() {
+    if (children instanceof PackedNumberList) return ((PackedNumberList) children).toLongArray();
+    long[] values = new long[children.size()];
+    for (int i = 0; i < values.length; i++) values[i] = ((JsonPrimitive<?>) children.get(i)).getAsLong();
+    return values;
+  }
+
+  /**
+   * Gets the values of the json array of numbers.
+   *
+   * @return the values converted to double
+   * @throws ClassCastException if a value is not a number
+   * @see #toLongArray()
+   */
+  public double[] toDoubleArray() {
+    if (children instanceof PackedNumberList) return ((PackedNumberList) children).toDoubleArray();
+    double[] values = new double[children.size()];
+    for (int i = 0; i < values.length; i++) values[i] = ((JsonPrimitive<?>) children.get(i)).getAsDouble();
+    return values;
+  }
+
   @Override
   public boolean isJsonArray() {
     return true;
@@ -86,16 +190,63 @@ public class JsonArray extends JsonNode {
     return this;
   }
 
+  /**
+   * Creates the diff of the arrays. Inserted, deleted and replaced elements are stored as splices
+   * of the array, unless adding the whole target array is smaller.
+   *
+   * @param target the target to compare
+   * @return the json diff
+   */
   @Override
   public JsonDiff createDiff(JsonNode target) {
     JsonDiff diff = new JsonDiff();
-    if (!this.equals(target)) {
-      diff.addToRemoved(new JsonPrimitive<>(true));
+    if (structurallyEqual(this, target)) return diff;
+    JsonArray splices = target instanceof JsonArray ? createSplices((JsonArray) target) : null;
+    if (splices != null) {
+      diff.addToSpliced(splices);
+    } else {
+      diff.addToRemoved(JsonPrimitive.of(true));
       diff.addToAdded(target);
     }
     return diff;
   }
 
+  /**
+   * Creates the splices turning this array into the target.
+   *
+   * @return the splices or null if they are not smaller than the target
+   */
+  private JsonArray createSplices(JsonArray target) {
+    MyersDiff myers = new MyersDiff(children, target.children);
+    if (!myers.compute(MAX_EDITS)) return null;
+    // the splices are built in plain collections, they do not touch the nodes being compared
+    List<JsonNode> splices = new ArrayList<>();
+    // each splice counts as one node
+    int size = 0;
+    int i = 0, j = 0;
+    while (i < children.size() || j < target.children.size()) {
+      if (i < children.size() && j < target.children.size() && !myers.isDeleted(i) && !myers.isInserted(j)) {
+        i++;
+        j++;
+        continue;
+      }
+      int index = i;
+      List<JsonNode> added = new ArrayList<>();
+      while ((i < children.size() && myers.isDeleted(i)) || (j < target.children.size() && myers.isInserted(j))) {
+        if (i < children.size() && myers.isDeleted(i)) i++;
+        else added.add(target.children.get(j++));
+      }
+      Map<String, JsonNode> splice = new CompactJsonMap();
+      splice.put("index", JsonPrimitive.of(index));
+      if (i > index) splice.put("remove", JsonPrimitive.of(i - index));
+      if (!added.isEmpty()) splice.put("add", wrap(added));
+      splices.add(JsonObject.wrap(splice));
+      size += 1 + added.size();
+      if (size >= target.children.size()) return null;
+    }
+    return wrap(splices);
+  }
+
   @Override
   public void accept(JsonNodeVisitor visitor) {
     visitor.visit(this);
@@ -103,6 +254,7 @@ public class JsonArray extends JsonNode {
 
   @Override
   public JsonArray deepCopy() {
+    if (children instanceof PackedNumberList) return wrap(((PackedNumberList) children).deepCopy());
     JsonArray copy = new JsonArray();
     for (JsonNode value : children) {
       copy.add(value.deepCopy());
@@ -110,6 +262,16 @@ public class JsonArray extends JsonNode {
     return copy;
   }
 
+  /**
+   * Copies the array, the elements are shared with this array.
+   *
+   * @return the shallow copy
+   */
+  JsonArray shallowCopy() {
+    if (children instanceof PackedNumberList) return wrap(((PackedNumberList) children).deepCopy());
+    return new JsonArray(children);
+  }
+
   /**
    * Gets the read-only copy of values in the json array.
    *
@@ -121,6 +283,24 @@ public class JsonArray extends JsonNode {
 
   @Override
   public boolean equals(Object obj) {
-    return obj instanceof JsonArray && ((this == obj) || children.equals(((JsonArray) obj).children));
+    if (this == obj) return true;
+    if (!(obj instanceof JsonArray)) return false;
+    JsonArray other = (JsonArray) obj;
+    // arrays with cached fingerprints are different if the fingerprints are
+    if (differsByFingerprint(other)) return false;
+    return children.equals(other.children);
+  }
+
+  @Override
+  long computeFingerprint() {
+    long hash = 1;
+    if (children instanceof PackedNumberList && ((PackedNumberList) children).isPacked()) {
+      // the same as the fingerprints of the json primitives, without creating them
+      PackedNumberList numbers = (PackedNumberList) children;
+      for (int i = 0; i < numbers.size(); i++) hash = hash * FINGERPRINT_PRIME + numbers.fingerprint(i);
+    } else {
+      for (JsonNode child : children) hash = hash * FINGERPRINT_PRIME + child.fingerprint();
+    }
+    return mix(hash ^ children.size() ^ FINGERPRINT_SEED);
   }
 }
\ No newline at end of file
@@ -0,0 +1,169 @@
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Base of json objects and arrays, which cache the fingerprint of their subtree. The fingerprint
+ * is computed when it is requested for the first time and then cached, computing it has no other
+ * side effect, so a tree may be hashed and compared by more threads at once.
+ * <p>
+ * A container is linked to the containers it is a child of when it is attached to them (added,
+ * set, or shared by a copy). A modification invalidates the cached fingerprint of the container
+ * and of the containers above it, only up to the containers already invalidated: a container
+ * caches its fingerprint only after its children have cached theirs. A container shared by more
+ * parents, e.g. by the versions of a document created by path copying, links to all of them, and
+ * links to them weakly, so that it does not keep the older versions reachable.
+ *
+ * @see JsonNode#structurallyEqual(JsonNode, JsonNode)
+ */
+abstract class JsonContainer extends JsonNode {
+  // the fingerprint of the containers which have not computed it yet
+  private static final long NOT_COMPUTED = 0;
+
+  private volatile long fingerprint = NOT_COMPUTED;
+  // the parent containers: null, the only parent, or the weakly referenced parents
+  private Object parents;
+
+  /**
+   * Computes the fingerprint from the fingerprints of the children.
+   *
+   * @return the fingerprint
+   */
+  abstract long computeFingerprint();
+
+  /**
+   * Gets the 64-bit structural hash of the subtree. It is cached until the subtree is modified.
+   *
+   * @return the fingerprint
+   */
+  @Override
+  final long fingerprint() {
+    long value = fingerprint;
+    if (value == NOT_COMPUTED) {
+      value = computeFingerprint();
+      // NOT_COMPUTED is not a valid fingerprint
+      if (value == NOT_COMPUTED) value = 1;
+      // a concurrent computation stores the same value
+      fingerprint = value;
+    }
+    return value;
+  }
+
+  /**
+   * Gets the structural hash of the container, derived from its fingerprint.
+   *
+   * @return the hash
+   */
+  @Override
+  public int hashCode() {
+    long value = fingerprint();
+    return (int) (value ^ (value >>> 32));
+  }
+
+  /**
+   * Checks whether the containers are different by their cached fingerprints, without computing them.
+   *
+   * @param other the other container
+   * @return true if both fingerprints are cached and they differ
+   */
+  final boolean differsByFingerprint(JsonContainer other) {
+    long value = fingerprint, otherValue = other.fingerprint;
+    return value != NOT_COMPUTED && otherValue != NOT_COMPUTED && value != otherValue;
+  }
+
+  /**
+   * Records a modification of this container, invalidating its fingerprint and the fingerprints
+   * of the containers above it.
+   */
+  final void modified() {
+    Deque<JsonContainer> pending = null;
+    JsonContainer container = this;
+    while (container != null) {
+      // the containers above a container without a fingerprint do not have one either
+      if (container.fingerprint != NOT_COMPUTED) {
+        container.fingerprint = NOT_COMPUTED;
+        if (container.parents instanceof JsonContainer) {
+          container = (JsonContainer) container.parents;
+          continue;
+        }
+        if (container.parents instanceof Parents) {
+          if (pending == null) pending = new ArrayDeque<>();
+          ((Parents) container.parents).pushTo(pending);
+        }
+      }
+      container = pending == null ? null : pending.poll();
+    }
+  }
+
+  /**
+   * Links the node to this container when it becomes its child. The caller records the
+   * modification of this container.
+   *
+   * @param node the new child
+   */
+  final void attach(JsonNode node) {
+    if (!(node instanceof JsonContainer)) return;
+    JsonContainer child = (JsonContainer) node;
+    if (child.parents == null) {
+      child.parents = this;
+    } else {
+      if (child.parents instanceof JsonContainer) child.parents = new Parents((JsonContainer) child.parents);
+      ((Parents) child.parents).add(this);
+    }
+  }
+
+  /**
+   * Unlinks the node from this container when it is no longer its child (once if it was placed
+   * in this container more times). The caller records the modification of this container.
+   *
+   * @param node the former child
+   */
+  final void detach(JsonNode node) {
+    if (!(node instanceof JsonContainer)) return;
+    JsonContainer child = (JsonContainer) node;
+    if (child.parents == this) child.parents = null;
+    else if (child.parents instanceof Parents) ((Parents) child.parents).remove(this);
+  }
+
+  /**
+   * The parents of a container with more parents.
+   */
+  private static final class Parents {
+    private final List<WeakReference<JsonContainer>> references = new ArrayList<>(4);
+    // the size at which the references of the collected parents are dropped
+    private int purgeSize = 8;
+
+    private Parents(JsonContainer parent) {
+      add(parent);
+    }
+
+    private void add(JsonContainer parent) {
+      // the parents collected by now do not need to be notified, purged in amortized constant time
+      if (references.size() == purgeSize) {
+        references.removeIf(reference -> reference.get() == null);
+        purgeSize = Math.max(8, references.size() * 2);
+      }
+      references.add(new WeakReference<>(parent));
+    }
+
+    private void remove(JsonContainer parent) {
+      // the latest parents are detached most often (replaced in copies)
+      for (int i = references.size() - 1; i >= 0; i--) {
+        if (references.get(i).get() == parent) {
+          references.set(i, references.get(references.size() - 1));
+          references.remove(references.size() - 1);
+          return;
+        }
+      }
+    }
+
+    private void pushTo(Deque<JsonContainer> pending) {
+      for (WeakReference<JsonContainer> reference : references) {
+        JsonContainer parent = reference.get();
+        if (parent != null) pending.push(parent);
+      }
+    }
+  }
+}
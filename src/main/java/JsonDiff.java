@@ -1,3 +1,6 @@
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * The type Json diff. Tracks what has been removed and what has been
  * added in json object. For example:<br>
@@ -6,10 +9,15 @@
  * The diff produced by comparing jsonA to jsonB would be:
  * {"add":{"c":false},"remove":{"b":true}}
  * All json primitives in remove object will be true as we care only about the keys.
+ * Changes of arrays are tracked element-wise when it is smaller than adding the whole array.
+ * The splices of an array are stored in the splice object under the path of the array, as an
+ * array of {"index":i,"remove":n,"add":[...]} operations ordered by the index in the source array:
+ * {"splice":{"a":[{"index":2,"remove":1,"add":[false]}]}}
  */
 public class JsonDiff {
   private static final String ADD_PATH = "add";
   private static final String REMOVE_PATH = "remove";
+  private static final String SPLICE_PATH = "splice";
   private final JsonObject diff;
 
   /**
@@ -22,6 +30,28 @@ public class JsonDiff {
     diff = new JsonObject();
   }
 
+  /**
+   * Composes the diffs into one diff. Applying it gives the same node as applying the diffs one
+   * after another.
+   *
+   * @param diffs the diffs in the order they would be applied
+   * @return the composed diff
+   */
+  public static JsonDiff compose(List<JsonDiff> diffs) {
+    return new JsonDiffComposer().compose(diffs);
+  }
+
+  /**
+   * Composes the diffs into one diff.
+   *
+   * @param diffs the diffs in the order they would be applied
+   * @return the composed diff
+   * @see #compose(List)
+   */
+  public static JsonDiff compose(JsonDiff... diffs) {
+    return compose(Arrays.asList(diffs));
+  }
+
   /**
    * Track that node has been added.
    *
@@ -40,6 +70,15 @@ public class JsonDiff {
     diff.add(REMOVE_PATH, node);
   }
 
+  /**
+   * Track that elements of arrays have been spliced.
+   *
+   * @param node the splices of an array, or an object of splices
+   */
+  public void addToSpliced(JsonNode node) {
+    diff.add(SPLICE_PATH, node);
+  }
+
   /**
    * @return true if something was added, false otherwise
    */
@@ -54,6 +93,13 @@ public class JsonDiff {
     return diff.getChildren().containsKey(REMOVE_PATH);
   }
 
+  /**
+   * @return true if elements of some array were spliced, false otherwise
+   */
+  public boolean isSomethingSpliced() {
+    return diff.getChildren().containsKey(SPLICE_PATH);
+  }
+
   /**
    * Gets json node representing additions.
    *
@@ -72,6 +118,15 @@ public class JsonDiff {
     return diff.getChildren().get(REMOVE_PATH);
   }
 
+  /**
+   * Gets json node representing splices of arrays.
+   *
+   * @return the splices
+   */
+  public JsonNode getSpliced() {
+    return diff.getChildren().get(SPLICE_PATH);
+  }
+
   /**
    * Gets the raw diff object.
    *
@@ -87,14 +142,14 @@ public class JsonDiff {
   }
 
   /**
-   * Checks whether the jsonObject is a valid diff object (has only ADD_PATH or REMOVE_PATH).
+   * Checks whether the jsonObject is a valid diff object (has only ADD_PATH, REMOVE_PATH or SPLICE_PATH).
    *
    * @param jsonObject the json object to check
    * @return true it the object is valid diff
    */
   public static boolean isValidDiff(JsonObject jsonObject) {
     for (String key : jsonObject.getKeys()) {
-      if (!key.equals(ADD_PATH) && key.equals(REMOVE_PATH)) return false;
+      if (!key.equals(ADD_PATH) && !key.equals(REMOVE_PATH) && !key.equals(SPLICE_PATH)) return false;
     }
     return true;
   }
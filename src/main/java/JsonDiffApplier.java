@@ -1,5 +1,10 @@
+import java.util.ArrayList;
+import java.util.List;
+
 /**
- * The type Json diff applier.
+ * The type Json diff applier. The diff is applied by path copying: only the objects on the paths
+ * changed by the diff are copied, all other subtrees are shared with the source, so applying
+ * a small diff costs the size of the changed paths rather than the size of the document.
  */
 class JsonDiffApplier {
   /**
@@ -11,42 +16,78 @@ class JsonDiffApplier {
    * @return the json node got by applying the diff on the source
    */
   public JsonNode applyDiff(JsonNode source, JsonDiff jsonDiff) {
-    JsonNode removed = recursiveRemove(source, jsonDiff.getRemoved());
-    return recursiveAdd(removed, jsonDiff.getAdded());
+    JsonNode res = recursiveApply(source, jsonDiff.getAdded(), jsonDiff.getRemoved(), jsonDiff.getSpliced());
+    return res != null ? res : new JsonObject();
   }
 
   /**
-   * Recursively traverse the source and return new node with applied additions.
-   * @param source the object to recurse on
+   * Applies the diffs one after another on json node. The diffs are composed first, so the source
+   * is traversed only once and the paths changed by several diffs are copied only once.
+   *
+   * @param source the json node on which to apply the diffs
+   * @param jsonDiffs the json diffs to apply in order
+   * @return the json node got by applying the diffs on the source
+   * @see JsonDiff#compose(List)
+   */
+  public JsonNode applyDiffs(JsonNode source, List<JsonDiff> jsonDiffs) {
+    return applyDiff(source, JsonDiff.compose(jsonDiffs));
+  }
+
+  /**
+   * Recursively traverse the source and return new node with applied removals, splices and additions.
+   * @param source the node to recurse on (null if it does not exist)
    * @param add the additions
-   * @return json object with applied additions
+   * @param remove the removals
+   * @param splice the splices
+   * @return the source if nothing changed, a copy with applied changes or null if the node was removed
    */
-  private static JsonNode recursiveAdd(JsonNode source, JsonNode add) {
-    if (!(add instanceof JsonObject)) return add;
-    JsonObject addJson = (JsonObject) add;
-    JsonObject ret = (JsonObject) source;
+  static JsonNode recursiveApply(JsonNode source, JsonNode add, JsonNode remove, JsonNode splice) {
+    if (add == null && remove == null && splice == null) return source;
+    if (remove != null && remove.isJsonPrimitive()) source = null;
+    if (splice != null && splice.isJsonArray()) source = splice(source.getAsJsonArray(), splice.getAsJsonArray());
+    // values added to nothing or over a value of other type replace it, objects are merged
+    if (add != null && (source == null || !source.isJsonObject() || !add.isJsonObject())) return add;
+    if (source == null || !source.isJsonObject()) return source;
+    JsonObject ret = source.getAsJsonObject().shallowCopy();
+    JsonObject addJson = add != null ? add.getAsJsonObject() : new JsonObject();
+    JsonObject removeJson = remove != null ? remove.getAsJsonObject() : new JsonObject();
+    JsonObject spliceJson = splice != null ? splice.getAsJsonObject() : new JsonObject();
+    for (String key : removeJson.getKeys()) {
+      apply(ret, key, addJson.get(key), removeJson.get(key), spliceJson.get(key));
+    }
+    for (String key : spliceJson.getKeys()) {
+      if (!removeJson.has(key)) apply(ret, key, addJson.get(key), null, spliceJson.get(key));
+    }
     for (String key : addJson.getKeys()) {
-      if (!ret.has(key)) ret.add(key, addJson.get(key));
-      else ret.add(key, recursiveAdd(ret.get(key), addJson.get(key)));
+      if (!removeJson.has(key) && !spliceJson.has(key)) apply(ret, key, addJson.get(key), null, null);
     }
     return ret;
   }
 
+  private static void apply(JsonObject ret, String key, JsonNode add, JsonNode remove, JsonNode splice) {
+    JsonNode value = recursiveApply(ret.get(key), add, remove, splice);
+    if (value == null) ret.remove(key);
+    else ret.add(key, value);
+  }
+
   /**
-   * Recursively traverse the source and return new node with applied removals.
-   * @param source the object to recurse on
-   * @param remove the removals
-   * @return json object with applied removals
+   * Returns new array with the splices applied to the elements of the source.
+   * @param source the array to splice
+   * @param splices the splices ordered by index
+   * @return the spliced array
    */
-  private static JsonNode recursiveRemove(JsonNode source, JsonNode remove) {
-    if (remove == null) return source;
-    if (remove.isJsonPrimitive()) return new JsonObject();
-    JsonObject ret = (JsonObject) source;
-    JsonObject jsonRemove = (JsonObject) remove;
-    for (String key : jsonRemove.getKeys()) {
-      ret.add(key, recursiveRemove(ret.get(key), jsonRemove.get(key)));
-      if (ret.get(key).getAsJsonObject().getChildren().size() == 0) ret.remove(key);
+  private static JsonArray splice(JsonArray source, JsonArray splices) {
+    List<JsonNode> children = source.getChildren();
+    List<JsonNode> ret = new ArrayList<>(children.size());
+    int next = 0;
+    for (JsonNode node : splices.getChildren()) {
+      JsonObject splice = node.getAsJsonObject();
+      int index = (int) splice.get("index").getAsJsonPrimitive().getAsLong();
+      ret.addAll(children.subList(next, index));
+      next = index + (splice.has("remove") ? (int) splice.get("remove").getAsJsonPrimitive().getAsLong() : 0);
+      if (splice.has("add")) ret.addAll(splice.get("add").getAsJsonArray().getChildren());
     }
-    return ret;
+    ret.addAll(children.subList(next, children.size()));
+    return JsonArray.wrap(ret);
   }
 }
@@ -0,0 +1,293 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The type Json diff composer. Composes a sequence of diffs into one diff, which applied on a node
+ * gives the same node as applying the diffs one after another. The diffs are composed without the
+ * node they are applied to, every path of the composed diff is visited once. Values replaced as
+ * a whole by a diff are updated by the following diffs directly, splices of arrays are composed
+ * into splices of the original array.
+ *
+ * @see JsonDiff#compose(List)
+ */
+class JsonDiffComposer {
+  /**
+   * Composes the diffs.
+   *
+   * @param diffs the diffs in the order they are applied
+   * @return the composed diff
+   */
+  public JsonDiff compose(List<JsonDiff> diffs) {
+    Change composed = Change.IDENTITY;
+    for (JsonDiff diff : diffs) {
+      composed = compose(composed, Change.of(diff.getAdded(), diff.getRemoved(), diff.getSpliced()));
+    }
+    JsonDiff diff = new JsonDiff();
+    JsonNode add = composed.toAdded();
+    JsonNode remove = composed.toRemoved();
+    JsonNode splice = composed.toSpliced();
+    if (add != null) diff.addToAdded(add);
+    if (remove != null) diff.addToRemoved(remove);
+    if (splice != null) diff.addToSpliced(splice);
+    return diff;
+  }
+
+  /**
+   * Composes the changes of a node, the second change is applied after the first one.
+   */
+  private static Change compose(Change first, Change second) {
+    if (second.kind == Kind.IDENTITY) return first;
+    if (second.kind == Kind.REPLACE || first.kind == Kind.IDENTITY) return second;
+    if (first.kind == Kind.REPLACE) {
+      // the value is known, so the change is applied to it
+      if (first.value == null && second.kind == Kind.SPLICE) throw new IllegalArgumentException("Cannot splice a removed value");
+      return Change.replace(JsonDiffApplier.recursiveApply(first.value, second.toAdded(), second.toRemoved(), second.toSpliced()));
+    }
+    if (second.kind == Kind.SPLICE) {
+      if (first.kind == Kind.SPLICE) return Change.splice(composeSplices(first.splices, second.splices));
+      if (first.added) throw new IllegalArgumentException("Cannot splice an object");
+      // removals and splices of members do not change arrays
+      return second;
+    }
+    // the second change merges into the object
+    if (first.kind == Kind.SPLICE) return second.added ? Change.replace(second.toAdded()) : first;
+    Map<String, Change> children = new LinkedHashMap<>(first.children);
+    for (Map.Entry<String, Change> entry : second.children.entrySet()) {
+      Change child = children.get(entry.getKey());
+      children.put(entry.getKey(), compose(child != null ? child : Change.IDENTITY, entry.getValue()));
+    }
+    return Change.merge(children, first.added || second.added);
+  }
+
+  /**
+   * Composes the splices of an array with the splices of the spliced array.
+   */
+  private static JsonArray composeSplices(JsonArray first, JsonArray second) {
+    // the spliced array as the ranges of the original array and the added elements
+    List<Segment> segments = new ArrayList<>();
+    int position = 0;
+    for (JsonNode node : first.getChildren()) {
+      JsonObject splice = node.getAsJsonObject();
+      int index = index(splice);
+      if (index > position) segments.add(new Segment(position, index));
+      if (!added(splice).isEmpty()) segments.add(new Segment(added(splice)));
+      position = index + removed(splice);
+    }
+    segments.add(new Segment(position, Segment.OPEN));
+
+    // the array spliced twice
+    List<Segment> result = new ArrayList<>();
+    int next = 0;
+    int cursor = 0;
+    for (JsonNode node : second.getChildren()) {
+      JsonObject splice = node.getAsJsonObject();
+      int index = index(splice);
+      next = take(segments, next, index - cursor, result);
+      next = take(segments, next, removed(splice), null);
+      if (!added(splice).isEmpty()) result.add(new Segment(added(splice)));
+      cursor = index + removed(splice);
+    }
+    result.addAll(segments.subList(next, segments.size()));
+
+    // the gaps between the ranges of the original array are the splices
+    JsonArray splices = new JsonArray();
+    List<JsonNode> pending = new ArrayList<>();
+    position = 0;
+    for (Segment segment : result) {
+      if (segment.nodes != null) {
+        pending.addAll(segment.nodes);
+        continue;
+      }
+      if (segment.start > position || !pending.isEmpty()) {
+        JsonObject splice = new JsonObject();
+        splice.add("index", JsonPrimitive.of(position));
+        if (segment.start > position) splice.add("remove", JsonPrimitive.of(segment.start - position));
+        if (!pending.isEmpty()) splice.add("add", JsonArray.wrap(new ArrayList<>(pending)));
+        splices.add(splice);
+        pending.clear();
+      }
+      position = segment.end;
+    }
+    return splices;
+  }
+
+  /**
+   * Moves the given number of elements from the segments starting at the index to the result
+   * (or drops them if the result is null), the segment containing the last element is split.
+   *
+   * @return the index of the first segment not taken
+   */
+  private static int take(List<Segment> segments, int next, int count, List<Segment> result) {
+    while (count > 0) {
+      if (next == segments.size()) throw new IllegalArgumentException("Splice out of the array");
+      Segment segment = segments.get(next);
+      int length = segment.length();
+      if (length > count) {
+        Segment[] split = segment.split(count);
+        if (result != null) result.add(split[0]);
+        segments.set(next, split[1]);
+        return next;
+      }
+      if (result != null) result.add(segment);
+      count -= length;
+      next++;
+    }
+    return next;
+  }
+
+  private static int index(JsonObject splice) {
+    return (int) splice.get("index").getAsJsonPrimitive().getAsLong();
+  }
+
+  private static int removed(JsonObject splice) {
+    return splice.has("remove") ? (int) splice.get("remove").getAsJsonPrimitive().getAsLong() : 0;
+  }
+
+  private static List<JsonNode> added(JsonObject splice) {
+    return splice.has("add") ? splice.get("add").getAsJsonArray().getChildren() : new ArrayList<>();
+  }
+
+  /**
+   * Kind of the change of a node.
+   */
+  private enum Kind {
+    // the node does not change
+    IDENTITY,
+    // the node is replaced by a value (or removed)
+    REPLACE,
+    // the elements of the array are spliced
+    SPLICE,
+    // the members of the object change
+    MERGE
+  }
+
+  /**
+   * Change of a node, the diff of a node normalized by what the change does with the node.
+   */
+  private static class Change {
+    static final Change IDENTITY = new Change(Kind.IDENTITY, null, null, new LinkedHashMap<>(), false);
+
+    final Kind kind;
+    // the value replacing the node, null if the node is removed
+    final JsonNode value;
+    final JsonArray splices;
+    final Map<String, Change> children;
+    // whether an object is merged into the node, so a node which is not an object is replaced by it
+    final boolean added;
+
+    private Change(Kind kind, JsonNode value, JsonArray splices, Map<String, Change> children, boolean added) {
+      this.kind = kind;
+      this.value = value;
+      this.splices = splices;
+      this.children = children;
+      this.added = added;
+    }
+
+    static Change replace(JsonNode value) {
+      return new Change(Kind.REPLACE, value, null, new LinkedHashMap<>(), false);
+    }
+
+    static Change splice(JsonArray splices) {
+      return new Change(Kind.SPLICE, null, splices, new LinkedHashMap<>(), false);
+    }
+
+    static Change merge(Map<String, Change> children, boolean added) {
+      return new Change(Kind.MERGE, null, null, children, added);
+    }
+
+    /**
+     * Normalizes the sections of a diff of a node, the same way they are applied by {@link JsonDiffApplier}.
+     */
+    static Change of(JsonNode add, JsonNode remove, JsonNode splice) {
+      if (remove != null && remove.isJsonPrimitive()) return replace(add);
+      if (add != null && !add.isJsonObject()) return replace(add);
+      if (splice != null && splice.isJsonArray()) return add != null ? replace(add) : splice(splice.getAsJsonArray());
+      if (add == null && remove == null && splice == null) return IDENTITY;
+      Map<String, Change> children = new LinkedHashMap<>();
+      for (JsonNode section : Arrays.asList(remove, splice, add)) {
+        if (section == null) continue;
+        for (String key : section.getAsJsonObject().getKeys()) {
+          if (children.containsKey(key)) continue;
+          children.put(key, of(child(add, key), child(remove, key), child(splice, key)));
+        }
+      }
+      return merge(children, add != null);
+    }
+
+    private static JsonNode child(JsonNode section, String key) {
+      return section != null ? section.getAsJsonObject().get(key) : null;
+    }
+
+    JsonNode toAdded() {
+      if (kind == Kind.REPLACE) return value;
+      if (kind != Kind.MERGE) return null;
+      JsonObject add = new JsonObject();
+      for (Map.Entry<String, Change> entry : children.entrySet()) {
+        JsonNode child = entry.getValue().toAdded();
+        if (child != null) add.add(entry.getKey(), child);
+      }
+      return added || !add.getChildren().isEmpty() ? add : null;
+    }
+
+    JsonNode toRemoved() {
+      // values other than objects replace the node without being removed first
+      if (kind == Kind.REPLACE) return value == null || value.isJsonObject() ? JsonPrimitive.of(true) : null;
+      if (kind != Kind.MERGE) return null;
+      JsonObject remove = new JsonObject();
+      for (Map.Entry<String, Change> entry : children.entrySet()) {
+        JsonNode child = entry.getValue().toRemoved();
+        if (child != null) remove.add(entry.getKey(), child);
+      }
+      return remove.getChildren().isEmpty() ? null : remove;
+    }
+
+    JsonNode toSpliced() {
+      if (kind == Kind.SPLICE) return splices;
+      if (kind != Kind.MERGE) return null;
+      JsonObject splice = new JsonObject();
+      for (Map.Entry<String, Change> entry : children.entrySet()) {
+        JsonNode child = entry.getValue().toSpliced();
+        if (child != null) splice.add(entry.getKey(), child);
+      }
+      return splice.getChildren().isEmpty() ? null : splice;
+    }
+  }
+
+  /**
+   * A range of the original array, or elements added by a splice.
+   */
+  private static class Segment {
+    // the end of the range continuing to the end of the array
+    static final int OPEN = Integer.MAX_VALUE;
+
+    final int start;
+    final int end;
+    final List<JsonNode> nodes;
+
+    Segment(int start, int end) {
+      this.start = start;
+      this.end = end;
+      this.nodes = null;
+    }
+
+    Segment(List<JsonNode> nodes) {
+      this.start = 0;
+      this.end = 0;
+      this.nodes = nodes;
+    }
+
+    int length() {
+      return nodes != null ? nodes.size() : end - start;
+    }
+
+    Segment[] split(int length) {
+      if (nodes != null) {
+        return new Segment[]{new Segment(nodes.subList(0, length)), new Segment(nodes.subList(length, nodes.size()))};
+      }
+      return new Segment[]{new Segment(start, start + length), new Segment(start + length, end)};
+    }
+  }
+}
@@ -0,0 +1,33 @@
+/**
+ * Json primitive holding a decimal number unboxed.
+ *
+ * @see JsonPrimitive#of(double)
+ */
+class JsonDoublePrimitive extends JsonPrimitive<Double> {
+  private final double value;
+
+  JsonDoublePrimitive(double value) {
+    super(null);
+    this.value = value;
+  }
+
+  @Override
+  public boolean isNumber() {
+    return true;
+  }
+
+  @Override
+  public Double getValue() {
+    return value;
+  }
+
+  @Override
+  public long getAsLong() {
+    return (long) value;
+  }
+
+  @Override
+  public double getAsDouble() {
+    return value;
+  }
+}
@@ -1,12 +1,46 @@
-import java.util.Collections;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
 
 /**
- * The type Json formatter.
+ * The type Json formatter. Formats either an existing tree (as a visitor) or the values pushed
+ * by a parser (as a handler), so json can be reformatted without building a tree:
+ * <pre>
+ * JsonFormatter formatter = new JsonFormatter(2);
+ * JsonParser.parse(jsonString, formatter);
+ * String pretty = formatter.getFormattedJson();
+ * </pre>
+ * The json is collected in a string by default. Formatters writing to a writer, an output stream
+ * or a channel stream the json through a fixed-size buffer instead, call {@link #flush()} when
+ * the json is complete. I/O errors are rethrown as {@link UncheckedIOException}.
  */
-public class JsonFormatter implements JsonNodeVisitor {
-  private final StringBuilder builder;
+public class JsonFormatter implements JsonNodeVisitor, JsonHandler {
+  // indentation is written in chunks of this string
+  private static final String SPACES = "                                                                ";
+  // escape sequences of the ASCII characters, null for characters which are not escaped
+  private static final String[] ESCAPES = new String[128];
+
+  static {
+    for (int c = 0; c < 0x20; c++) ESCAPES[c] = String.format("\\u%04x", c);
+    ESCAPES['"'] = "\\\"";
+    ESCAPES['\\'] = "\\\\";
+    ESCAPES['\b'] = "\\b";
+    ESCAPES['\f'] = "\\f";
+    ESCAPES['\n'] = "\\n";
+    ESCAPES['\r'] = "\\r";
+    ESCAPES['\t'] = "\\t";
+  }
+
+  private final JsonOutput output;
   private final int indent;
   private int offset = 0;
+  // nesting level of the value being formatted
+  private int depth = 0;
+  // whether no element has been written to the current object or array yet
+  private boolean empty = true;
+  // whether the next value belongs to the key which has just been written
+  private boolean afterKey = false;
 
   /**
    * Instantiates a new Json formatter with 0 indentation.
@@ -21,16 +55,54 @@ public class JsonFormatter implements JsonNodeVisitor {
    * @param indent the number of spaces used when formatting the json
    */
   public JsonFormatter(int indent) {
-    this(indent, new StringBuilder());
+    this(indent, new JsonOutput.StringOutput());
+  }
+
+  /**
+   * Instantiates a new Json formatter writing to the writer.
+   *
+   * @param indent the number of spaces used when formatting the json
+   * @param writer the writer to write the json to
+   */
+  public JsonFormatter(int indent, Writer writer) {
+    this(indent, new JsonOutput.WriterOutput(writer));
+  }
+
+  /**
+   * Instantiates a new Json formatter writing UTF-8 encoded json to the output stream.
+   *
+   * @param indent       the number of spaces used when formatting the json
+   * @param outputStream the output stream to write the json to
+   */
+  public JsonFormatter(int indent, OutputStream outputStream) {
+    this(indent, new JsonOutput.Utf8Output(outputStream));
+  }
+
+  /**
+   * Instantiates a new Json formatter writing UTF-8 encoded json to the channel.
+   *
+   * @param indent  the number of spaces used when formatting the json
+   * @param channel the channel to write the json to
+   */
+  public JsonFormatter(int indent, WritableByteChannel channel) {
+    this(indent, new JsonOutput.Utf8Output(channel));
   }
 
-  private JsonFormatter(int indent, StringBuilder builder) {
-    this.builder = builder;
+  /**
+   * Instantiates a new Json formatter writing to the output.
+   *
+   * @param indent the number of spaces used when formatting the json
+   * @param output the output to write the json to
+   */
+  JsonFormatter(int indent, JsonOutput output) {
+    this.output = output;
     this.indent = indent;
     this.offset = 0;
   }
 
-  private String createSpace(int count) { return String.join("", Collections.nCopies(count, " "));
+  private void writeSpaces(int count) {
+    for (; count > SPACES.length(); count -= SPACES.length()) output.write(SPACES);
+    output.write(SPACES, 0, count);
   }
 
   private boolean shouldIndent() {
@@ -39,61 +111,170 @@ public class JsonFormatter implements JsonNodeVisitor {
 
   @Override
   public void visit(JsonArray jsonArray) {
-    builder.append("[");
-    if (shouldIndent()) builder.append('\n');
-    offset += indent;
-    int nextIndex = 1;
+    startArray();
     for (JsonNode node : jsonArray.getChildren()) {
-      builder.append(createSpace(offset));
       node.accept(this);
-      if (nextIndex != jsonArray.getChildren().size()) builder.append(',');
-      nextIndex++;
-      if (shouldIndent()) builder.append('\n');
     }
-    offset -= indent;
-    builder.append(createSpace(offset)).append("]");
+    endArray();
   }
 
   @Override
   public void visit(JsonObject jsonObject) {
-    builder.append('{');
-    if (shouldIndent()) builder.append('\n');
-    offset += indent;
-    int nextIndex = 1;
+    startObject();
     for (String key : jsonObject.getKeys()) {
-      builder.append(createSpace(offset))
-              .append('"')
-              .append(quote(key))
-              .append('"')
-              .append(shouldIndent() ? ": " : ":");
+      key(key);
       jsonObject.get(key).accept(this);
-      if (nextIndex != jsonObject.getChildren().size()) builder.append(',');
-      nextIndex++;
-      if (shouldIndent()) builder.append('\n');
     }
-    offset -= indent;
-    builder.append(createSpace(offset)).append('}');
+    endObject();
   }
 
   @Override
   public void visit(JsonPrimitive jsonPrimitive) {
     if (jsonPrimitive.isString()) {
-      builder.append('"').append(quote((String) jsonPrimitive.getValue())).append('"');
+      primitive((String) jsonPrimitive.getValue());
+    } else if (jsonPrimitive instanceof JsonLongPrimitive) {
+      beforeValue();
+      output.write(jsonPrimitive.getAsLong());
+    } else if (jsonPrimitive instanceof JsonDoublePrimitive) {
+      beforeValue();
+      output.write(jsonPrimitive.getAsDouble());
+    } else if (jsonPrimitive.isNull()) {
+      nullValue();
     } else {
-      builder.append(jsonPrimitive.getValue());
+      beforeValue();
+      output.write(String.valueOf(jsonPrimitive.getValue()));
     }
   }
 
-  private String quote(String value) {
-    return value.replace("\"", "\\\"");
+  @Override
+  public void startObject() {
+    startContainer('{');
+  }
+
+  @Override
+  public void key(String key) {
+    beforeElement();
+    writeString(key);
+    output.write(shouldIndent() ? ": " : ":");
+    afterKey = true;
+  }
+
+  @Override
+  public void endObject() {
+    endContainer('}');
+  }
+
+  @Override
+  public void startArray() {
+    startContainer('[');
+  }
+
+  @Override
+  public void endArray() {
+    endContainer(']');
+  }
+
+  @Override
+  public void primitive(String value) {
+    beforeValue();
+    writeString(value);
+  }
+
+  @Override
+  public void primitive(Number value) {
+    beforeValue();
+    output.write(value.toString());
+  }
+
+  @Override
+  public void primitive(boolean value) {
+    beforeValue();
+    output.write(value ? "true" : "false");
+  }
+
+  @Override
+  public void nullValue() {
+    beforeValue();
+    output.write("null");
+  }
+
+  private void startContainer(char bracket) {
+    beforeValue();
+    output.write(bracket);
+    if (shouldIndent()) output.write('\n');
+    offset += indent;
+    depth++;
+    empty = true;
+  }
+
+  private void endContainer(char bracket) {
+    if (!empty && shouldIndent()) output.write('\n');
+    offset -= indent;
+    depth--;
+    writeSpaces(offset);
+    output.write(bracket);
+    // the enclosing object or array contains at least this value
+    empty = false;
+  }
+
+  private void beforeValue() {
+    if (afterKey) afterKey = false;
+    else if (depth > 0) beforeElement();
+  }
+
+  private void beforeElement() {
+    if (!empty) {
+      output.write(',');
+      if (shouldIndent()) output.write('\n');
+    }
+    writeSpaces(offset);
+    empty = false;
+  }
+
+  /**
+   * Writes the quoted string. Quotes, backslashes and control characters are escaped as defined
+   * by RFC 8259, the runs of characters between them are written at once.
+   */
+  private void writeString(String value) {
+    output.write('"');
+    int length = value.length();
+    int start = 0;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c >= ESCAPES.length || ESCAPES[c] == null) continue;
+      output.write(value, start, i);
+      output.write(ESCAPES[c]);
+      start = i + 1;
+    }
+    output.write(value, start, length);
+    output.write('"');
+  }
+
+  /**
+   * Writes a line feed after a top level value, used to separate json lines.
+   */
+  void newLine() {
+    output.write('\n');
+  }
+
+  /**
+   * Writes out the buffered json and flushes the writer (or stream). Does nothing for formatters
+   * collecting the json in a string.
+   */
+  public void flush() {
+    output.flush();
   }
 
   /**
    * Gets formatted json.
    *
    * @return the formatted json
+   * @throws UnsupportedOperationException if the formatter writes the json to a writer, stream or channel
    */
   public String getFormattedJson() {
-    return builder.toString();
+    if (!(output instanceof JsonOutput.StringOutput)) {
+      throw new UnsupportedOperationException("The json is written to the output of the formatter");
+    }
+    return output.toString();
   }
 }
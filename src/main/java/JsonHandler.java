@@ -0,0 +1,63 @@
+/**
+ * The interface Json handler. Receives the structure of a json document as a sequence of
+ * callbacks while the document is being parsed, so no json node tree needs to be built.
+ *
+ * @see JsonParser#parse(JsonReader, JsonHandler)
+ */
+public interface JsonHandler {
+  /**
+   * Called for the opening brace of a json object.
+   */
+  void startObject();
+
+  /**
+   * Called for the key of an object member. The value of the member follows.
+   *
+   * @param key the key
+   */
+  void key(String key);
+
+  /**
+   * Called for the closing brace of a json object.
+   */
+  void endObject();
+
+  /**
+   * Called for the opening bracket of a json array.
+   */
+  void startArray();
+
+  /**
+   * Called for the closing bracket of a json array.
+   */
+  void endArray();
+
+  /**
+   * Called for a string value.
+   *
+   * @param value the value
+   */
+  void primitive(String value);
+
+  /**
+   * Called for a number value.
+   *
+   * @param value the value
+   */
+  void primitive(Number value);
+
+  /**
+   * Called for a boolean value.
+   *
+   * @param value the value
+   */
+  void primitive(boolean value);
+
+  /**
+   * Called for a null value. By default it is passed as a null string, so the handlers written
+   * before null values were pushed still receive one value for each key.
+   */
+  default void nullValue() {
+    primitive((String) null);
+  }
+}
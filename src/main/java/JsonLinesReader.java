@@ -0,0 +1,417 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reader of newline delimited json (also known as JSON Lines or NDJSON), yielding one json node
+ * per record. For example:<br>
+ * <pre>
+ * try (JsonLinesReader lines = new JsonLinesReader(inputStream)) {
+ *   lines.stream().filter(JsonNode::isJsonObject).forEach(System.out::println);
+ * }
+ * </pre>
+ * The records are read straight from the input by a single {@link JsonReader}, so the input is
+ * neither split to lines nor copied, and the memory used does not depend on the size of the input.
+ * Every line holds exactly one record, which may be any json value. Blank lines are skipped,
+ * records spanning lines and lines with more values are malformed. A malformed record is reported
+ * with its line number and the reader continues with the next line. As {@link Iterator} methods
+ * can't throw checked exceptions, the malformed json exceptions are wrapped in
+ * {@link IllegalStateException} when iterating, use {@link #nextNode()} to avoid this.
+ * <p>
+ * Files and buffers can be parsed in parallel using {@link #parallelStream(Path, boolean)}, which
+ * splits the input to chunks on line boundaries.
+ */
+public class JsonLinesReader implements Iterator<JsonNode>, Closeable {
+  private static final int CHUNK_SIZE = 4 << 20;
+  // the size of the reads when looking for the end of the line
+  private static final int SCAN_SIZE = 4096;
+
+  private final JsonReader reader;
+  // the number of lines before the input of the reader, counted only when a record is malformed
+  private final LongSupplier linesBefore;
+
+  /**
+   * Instantiates a new Json lines reader.
+   *
+   * @param reader the reader to read the records from
+   */
+  public JsonLinesReader(Reader reader) {
+    this(new JsonReader(reader));
+  }
+
+  /**
+   * Instantiates a new Json lines reader reading UTF-8 encoded records.
+   *
+   * @param inputStream the input stream to read the records from
+   */
+  public JsonLinesReader(InputStream inputStream) {
+    this(new JsonReader(inputStream));
+  }
+
+  /**
+   * Instantiates a new Json lines reader reading UTF-8 encoded records from memory mapped file.
+   *
+   * @param path the path of the file
+   * @throws IOException if the file could not be opened
+   */
+  public JsonLinesReader(Path path) throws IOException {
+    this(new JsonReader(path));
+  }
+
+  /**
+   * Instantiates a new Json lines reader. The json reader is switched to reading one value per line.
+   *
+   * @param reader the json reader to read the records from
+   */
+  public JsonLinesReader(JsonReader reader) {
+    this(reader, () -> 0);
+  }
+
+  private JsonLinesReader(JsonReader reader, LongSupplier linesBefore) {
+    this.reader = reader;
+    this.linesBefore = linesBefore;
+    reader.setLineDelimited();
+  }
+
+  /**
+   * Parse the next record. If the record is malformed, the rest of its line is skipped, so the
+   * next call continues with the following line.
+   *
+   * @return the parsed record or null if there are no more records
+   * @throws MalformedJsonException the malformed json exception it the record could not be parsed
+   */
+  public JsonNode nextNode() throws MalformedJsonException {
+    try {
+      if (reader.peek() == JsonToken.END_DOCUMENT) return null;
+      JsonNode node = JsonParser.parse(reader);
+      reader.endLine();
+      return node;
+    } catch (MalformedJsonException e) {
+      throw malformed(e);
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    try {
+      return reader.peek() != JsonToken.END_DOCUMENT;
+    } catch (MalformedJsonException e) {
+      throw new IllegalStateException(malformed(e));
+    }
+  }
+
+  @Override
+  public JsonNode next() {
+    try {
+      JsonNode node = nextNode();
+      if (node == null) throw new NoSuchElementException();
+      return node;
+    } catch (MalformedJsonException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Returns the remaining records as a sequential stream. Closing the stream closes this reader.
+   *
+   * @return the stream of records
+   */
+  public Stream<JsonNode> stream() {
+    Spliterator<JsonNode> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+    return StreamSupport.stream(spliterator, false).onClose(() -> {
+      try {
+        close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  /**
+   * @return the number of characters (bytes for byte inputs) read so far
+   */
+  public long getPosition() {
+    return reader.getPosition();
+  }
+
+  /**
+   * @return the number of the current line, counting from 1
+   */
+  public long getLine() {
+    return linesBefore.getAsLong() + reader.getLine();
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+  private MalformedJsonException malformed(MalformedJsonException e) {
+    long line = getLine();
+    reader.skipLine();
+    return new MalformedJsonException("Malformed record on line " + line + ": " + e.getMessage());
+  }
+
+  /**
+   * Parse the records of the file in parallel. The file is split to chunks of a few megabytes on
+   * line boundaries, every chunk is memory mapped and parsed by its own reader. The chunks are
+   * parsed in the common fork join pool (or in the pool of the task the terminal operation is
+   * called from), each record is passed on as soon as it is parsed. Closing the stream closes
+   * the file.
+   * <p>
+   * With ordered output, {@code collect} and {@code forEachOrdered} see the records in the order
+   * of the file. Otherwise the stream is unordered, so {@code forEach} and unordered collectors
+   * do not buffer the records of the chunks finished out of order. The first malformed record
+   * is reported as {@link IllegalStateException} by the terminal operation, use
+   * {@link #parallelStream(Path, boolean, Consumer)} to skip the malformed records.
+   *
+   * @param path    the path of the file
+   * @param ordered whether the records must keep the order of the file
+   * @return the parallel stream of records
+   * @throws IOException if the file could not be opened
+   */
+  public static Stream<JsonNode> parallelStream(Path path, boolean ordered) throws IOException {
+    return parallelStream(path, ordered, JsonLinesReader::failOnMalformed);
+  }
+
+  /**
+   * Parse the records of the file in parallel, passing the malformed records to the handler. As
+   * when reading by {@link #nextNode()}, the rest of the line of a malformed record is skipped and
+   * parsing continues with the next line. The handler is called from the threads parsing the
+   * chunks, so it may be called concurrently; an exception thrown by it ends the stream.
+   *
+   * @param path        the path of the file
+   * @param ordered     whether the records must keep the order of the file
+   * @param onMalformed the handler of the malformed records
+   * @return the parallel stream of the well-formed records
+   * @throws IOException if the file could not be opened
+   * @see #parallelStream(Path, boolean)
+   */
+  public static Stream<JsonNode> parallelStream(Path path, boolean ordered, Consumer<MalformedJsonException> onMalformed)
+          throws IOException {
+    return parallelStream(path, ordered, onMalformed, CHUNK_SIZE);
+  }
+
+  /**
+   * Parse the records of the file in parallel, splitting it to chunks of the given size.
+   *
+   * @see #parallelStream(Path, boolean, Consumer)
+   */
+  static Stream<JsonNode> parallelStream(Path path, boolean ordered, Consumer<MalformedJsonException> onMalformed,
+                                         int chunkSize) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      long size = channel.size();
+      List<Long> boundaries = new ArrayList<>();
+      boundaries.add(0L);
+      ByteBuffer scan = ByteBuffer.allocate(SCAN_SIZE);
+      for (long start = 0; start < size; ) {
+        long end = start + chunkSize;
+        // move the end of the chunk after the end of the line
+        while (end < size) {
+          scan.clear();
+          int count = channel.read(scan, end);
+          int i = 0;
+          while (i < count && scan.get(i) != '\n') i++;
+          end += i;
+          if (i < count) {
+            end++;
+            break;
+          }
+        }
+        start = Math.min(end, size);
+        boundaries.add(start);
+      }
+      return parallelStream(boundaries.size() - 1, i -> {
+        long start = boundaries.get(i);
+        try {
+          ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, boundaries.get(i + 1) - start);
+          return new JsonLinesReader(new JsonReader(chunk), () -> countLines(channel, start));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }, ordered, onMalformed).onClose(() -> {
+        try {
+          channel.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Parse the UTF-8 encoded records of the buffer (from its position to its limit) in parallel.
+   * The position of the buffer is not changed.
+   *
+   * @param buffer  the buffer with the records
+   * @param ordered whether the records must keep the order of the buffer
+   * @return the parallel stream of records
+   * @see #parallelStream(Path, boolean)
+   */
+  public static Stream<JsonNode> parallelStream(ByteBuffer buffer, boolean ordered) {
+    return parallelStream(buffer, ordered, JsonLinesReader::failOnMalformed);
+  }
+
+  /**
+   * Parse the UTF-8 encoded records of the buffer (from its position to its limit) in parallel,
+   * passing the malformed records to the handler. The position of the buffer is not changed.
+   *
+   * @param buffer      the buffer with the records
+   * @param ordered     whether the records must keep the order of the buffer
+   * @param onMalformed the handler of the malformed records
+   * @return the parallel stream of the well-formed records
+   * @see #parallelStream(Path, boolean, Consumer)
+   */
+  public static Stream<JsonNode> parallelStream(ByteBuffer buffer, boolean ordered, Consumer<MalformedJsonException> onMalformed) {
+    return parallelStream(buffer, ordered, onMalformed, CHUNK_SIZE);
+  }
+
+  /**
+   * Parse the records of the buffer in parallel, splitting it to chunks of the given size.
+   *
+   * @see #parallelStream(ByteBuffer, boolean, Consumer)
+   */
+  static Stream<JsonNode> parallelStream(ByteBuffer buffer, boolean ordered, Consumer<MalformedJsonException> onMalformed,
+                                         int chunkSize) {
+    ByteBuffer source = buffer.duplicate();
+    List<Integer> boundaries = new ArrayList<>();
+    boundaries.add(source.position());
+    for (int start = source.position(); start < source.limit(); ) {
+      int end = (int) Math.min((long) start + chunkSize, source.limit());
+      // move the end of the chunk after the end of the line
+      while (end < source.limit() && source.get(end++) != '\n') ;
+      boundaries.add(start = end);
+    }
+    return parallelStream(boundaries.size() - 1, i -> {
+      ByteBuffer chunk = source.duplicate();
+      chunk.limit(boundaries.get(i + 1)).position(boundaries.get(i));
+      return new JsonLinesReader(new JsonReader(chunk.slice()), () -> countLines(source, buffer.position(), boundaries.get(i)));
+    }, ordered, onMalformed);
+  }
+
+  private static Stream<JsonNode> parallelStream(int chunkCount, IntFunction<JsonLinesReader> chunks, boolean ordered,
+                                                 Consumer<MalformedJsonException> onMalformed) {
+    return StreamSupport.stream(new ChunkSpliterator(chunks, 0, chunkCount, ordered, onMalformed), true);
+  }
+
+  private static void failOnMalformed(MalformedJsonException e) {
+    throw new IllegalStateException(e);
+  }
+
+  /**
+   * @return the number of line feeds in the buffer between the positions
+   */
+  private static long countLines(ByteBuffer buffer, int start, int end) {
+    long lines = 0;
+    for (int i = start; i < end; i++) {
+      if (buffer.get(i) == '\n') lines++;
+    }
+    return lines;
+  }
+
+  /**
+   * @return the number of line feeds in the file before the position
+   */
+  private static long countLines(FileChannel channel, long end) {
+    ByteBuffer scan = ByteBuffer.allocate(SCAN_SIZE);
+    long lines = 0;
+    try {
+      for (long position = 0; position < end; ) {
+        scan.clear();
+        scan.limit((int) Math.min(SCAN_SIZE, end - position));
+        int count = channel.read(scan, position);
+        if (count <= 0) break;
+        lines += countLines(scan, 0, count);
+        position += count;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return lines;
+  }
+
+  /**
+   * Spliterator over the records of a range of chunks. It is split on chunk boundaries, the
+   * records of a chunk are parsed one by one as they are requested, so a chunk is never held
+   * parsed as a whole.
+   */
+  private static final class ChunkSpliterator implements Spliterator<JsonNode> {
+    private final IntFunction<JsonLinesReader> chunks;
+    private final boolean ordered;
+    private final Consumer<MalformedJsonException> onMalformed;
+    // the range of the chunks not started yet
+    private int next;
+    private final int end;
+    // the reader of the chunk being parsed
+    private JsonLinesReader current;
+
+    private ChunkSpliterator(IntFunction<JsonLinesReader> chunks, int next, int end, boolean ordered,
+                             Consumer<MalformedJsonException> onMalformed) {
+      this.chunks = chunks;
+      this.next = next;
+      this.end = end;
+      this.ordered = ordered;
+      this.onMalformed = onMalformed;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super JsonNode> action) {
+      while (true) {
+        if (current == null) {
+          if (next == end) return false;
+          current = chunks.apply(next++);
+        }
+        JsonNode node;
+        try {
+          node = current.nextNode();
+        } catch (MalformedJsonException e) {
+          // the reader has skipped the line already
+          onMalformed.accept(e);
+          continue;
+        }
+        if (node == null) {
+          current = null;
+          continue;
+        }
+        action.accept(node);
+        return true;
+      }
+    }
+
+    @Override
+    public Spliterator<JsonNode> trySplit() {
+      if (end - next < 2) return null;
+      int middle = (next + end) >>> 1;
+      // the prefix is split off, so the order of the records is kept
+      ChunkSpliterator prefix = new ChunkSpliterator(chunks, next, middle, ordered, onMalformed);
+      // the chunk being parsed precedes the prefix
+      prefix.current = current;
+      current = null;
+      next = middle;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      // the number of records is not known
+      return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+      return ordered ? ORDERED | NONNULL : NONNULL;
+    }
+  }
+}
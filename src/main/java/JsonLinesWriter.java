@@ -0,0 +1,66 @@
+import java.io.*;
+
+/**
+ * Writer of newline delimited json (also known as JSON Lines or NDJSON). Every node is written
+ * formatted with zero whitespace and terminated by a line feed. The records are streamed through
+ * a fixed-size buffer, call {@link #flush()} or {@link #close()} to make sure they are written out.
+ *
+ * @see JsonLinesReader
+ */
+public class JsonLinesWriter implements Closeable, Flushable {
+  private final Closeable target;
+  private final JsonFormatter formatter;
+
+  /**
+   * Instantiates a new Json lines writer.
+   *
+   * @param writer the writer to write the records to
+   */
+  public JsonLinesWriter(Writer writer) {
+    this.target = writer;
+    this.formatter = new JsonFormatter(0, writer);
+  }
+
+  /**
+   * Instantiates a new Json lines writer writing UTF-8 encoded records.
+   *
+   * @param outputStream the output stream to write the records to
+   */
+  public JsonLinesWriter(OutputStream outputStream) {
+    this.target = outputStream;
+    this.formatter = new JsonFormatter(0, outputStream);
+  }
+
+  /**
+   * Write the node as the next record.
+   *
+   * @param node the node to write
+   * @throws IOException if the record could not be written
+   */
+  public void write(JsonNode node) throws IOException {
+    try {
+      node.accept(formatter);
+      formatter.newLine();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    try {
+      formatter.flush();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      target.close();
+    }
+  }
+}
@@ -0,0 +1,50 @@
+/**
+ * Json primitive holding an integral number unboxed.
+ *
+ * @see JsonPrimitive#of(long)
+ */
+class JsonLongPrimitive extends JsonPrimitive<Long> {
+  private static final int CACHE_LOW = -128;
+  private static final int CACHE_HIGH = 1023;
+  private static final JsonLongPrimitive[] CACHE = new JsonLongPrimitive[CACHE_HIGH - CACHE_LOW + 1];
+
+  static {
+    for (int i = 0; i < CACHE.length; i++) CACHE[i] = new JsonLongPrimitive(CACHE_LOW + i);
+  }
+
+  private final long value;
+
+  private JsonLongPrimitive(long value) {
+    super(null);
+    this.value = value;
+  }
+
+  /**
+   * @param value the value
+   * @return the shared instance for small values, new instance otherwise
+   */
+  static JsonLongPrimitive valueOf(long value) {
+    if (value >= CACHE_LOW && value <= CACHE_HIGH) return CACHE[(int) value - CACHE_LOW];
+    return new JsonLongPrimitive(value);
+  }
+
+  @Override
+  public boolean isNumber() {
+    return true;
+  }
+
+  @Override
+  public Long getValue() {
+    return value;
+  }
+
+  @Override
+  public long getAsLong() {
+    return value;
+  }
+
+  @Override
+  public double getAsDouble() {
+    return value;
+  }
+}
@@ -0,0 +1,121 @@
+/**
+ * JSON Merge Patch as defined by RFC 7386. The patch is an object with the members to change,
+ * nested objects are merged recursively and null members remove the keys. For example:<br>
+ * jsonA = "{a:52,b:{c:1,d:2}}"<br>
+ * jsonB = "{a:52,b:{c:3}}"<br>
+ * The merge patch turning jsonA into jsonB is {"b":{"c":3,"d":null}}.<br>
+ * Merge patches cannot express null values (they remove the keys) nor changes of array elements,
+ * changed arrays are replaced as a whole. A patch is applied either in place or with structural
+ * sharing, when only the patched objects are copied and the rest of the tree is shared.
+ *
+ * @see JsonNode#createDiff(JsonNode)
+ * @see JsonPatch
+ */
+public class JsonMergePatch {
+  private final JsonNode patch;
+
+  /**
+   * Instantiates a new Json merge patch.
+   *
+   * @param patch the patch
+   */
+  public JsonMergePatch(JsonNode patch) {
+    this.patch = patch;
+  }
+
+  /**
+   * Creates the merge patch turning the source into the target.
+   *
+   * @param source the source node
+   * @param target the target node
+   * @return the json merge patch
+   */
+  public static JsonMergePatch create(JsonNode source, JsonNode target) {
+    JsonDiff diff = source.createDiff(target);
+    if (!diff.isSomethingAdded() && !diff.isSomethingRemoved() && !diff.isSomethingSpliced()) {
+      // an empty object patch would turn other values into an empty object
+      return new JsonMergePatch(source.isJsonObject() ? new JsonObject() : target);
+    }
+    return new JsonMergePatch(createPatch(target, diff.getAdded(), diff.getRemoved(), diff.getSpliced()));
+  }
+
+  /**
+   * Gets the patch.
+   *
+   * @return the patch
+   */
+  public JsonNode getPatch() {
+    return patch;
+  }
+
+  /**
+   * Applies the patch with structural sharing. The document is not modified, the patched objects
+   * are copied and the rest is shared with the result (as are the values of the patch).
+   *
+   * @param document the json node on which to apply the patch
+   * @return the patched json node
+   */
+  public JsonNode apply(JsonNode document) {
+    return merge(document, patch, false);
+  }
+
+  /**
+   * Applies the patch by modifying the objects of the document.
+   *
+   * @param document the json node on which to apply the patch
+   * @return the patched json node, a different one only if the document was not an object
+   * or the patch is not an object
+   */
+  public JsonNode applyInPlace(JsonNode document) {
+    return merge(document, patch, true);
+  }
+
+  @Override
+  public String toString() {
+    return patch.toString();
+  }
+
+  /**
+   * Recursively traverse the diff of the value and return its merge patch.
+   */
+  private static JsonNode createPatch(JsonNode target, JsonNode add, JsonNode remove, JsonNode splice) {
+    // replaced values and spliced arrays are set as a whole
+    if ((remove != null && remove.isJsonPrimitive()) || (splice != null && splice.isJsonArray())) return target;
+    // added values, objects are merged into nothing (or into the changed value) as they are
+    if (add != null && !add.isJsonObject()) return add;
+    JsonObject targetObject = target.getAsJsonObject();
+    JsonObject addObject = add != null ? add.getAsJsonObject() : new JsonObject();
+    JsonObject removeObject = remove != null ? remove.getAsJsonObject() : new JsonObject();
+    JsonObject spliceObject = splice != null ? splice.getAsJsonObject() : new JsonObject();
+    JsonObject patch = new JsonObject();
+    for (String key : removeObject.getKeys()) {
+      if (!targetObject.has(key)) patch.add(key, JsonPrimitive.ofNull());
+      else patch.add(key, createPatch(targetObject.get(key), addObject.get(key), removeObject.get(key), spliceObject.get(key)));
+    }
+    for (String key : spliceObject.getKeys()) {
+      if (!patch.has(key)) patch.add(key, createPatch(targetObject.get(key), addObject.get(key), null, spliceObject.get(key)));
+    }
+    for (String key : addObject.getKeys()) {
+      if (!patch.has(key)) patch.add(key, createPatch(targetObject.get(key), addObject.get(key), null, null));
+    }
+    return patch;
+  }
+
+  /**
+   * Merges the patch into the target as described by RFC 7386.
+   */
+  private static JsonNode merge(JsonNode target, JsonNode patch, boolean inPlace) {
+    if (!patch.isJsonObject()) return patch;
+    JsonObject result;
+    if (target == null || !target.isJsonObject()) result = new JsonObject();
+    else if (inPlace) result = target.getAsJsonObject();
+    else result = target.getAsJsonObject().shallowCopy();
+    JsonObject patchObject = patch.getAsJsonObject();
+    for (String key : patchObject.getKeys()) {
+      JsonNode value = patchObject.get(key);
+      if (value.isJsonPrimitive() && value.getAsJsonPrimitive().isNull()) result.remove(key);
+      else result.add(key, merge(result.get(key), value, inPlace));
+    }
+    return result;
+  }
+}
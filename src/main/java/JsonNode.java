@@ -1,7 +1,17 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.List;
+
 /**
  * The base class for any json object.
  */
 public abstract class JsonNode {
+  // the multiplier combining the fingerprints of the children
+  static final long FINGERPRINT_PRIME = 0x9E3779B97F4A7C15L;
+
   /**
    * @return true if the instance is JsonObject, false otherwise
    * @see JsonObject
@@ -57,7 +67,8 @@ public abstract class JsonNode {
 
   /**
    * Apply diff to current instance and return it. This operation is done
-   * <b>immutably<b/> (current instance is not changed).
+   * <b>immutably<b/> (current instance is not changed). Only the objects on the changed paths
+   * are copied, the unchanged subtrees are shared with the returned node.
    *
    * @param diff the diff to apply
    * @return the json node with applied diff
@@ -68,6 +79,19 @@ public abstract class JsonNode {
     return applier.applyDiff(this, diff);
   }
 
+  /**
+   * Apply the diffs one after another to current instance and return the result. The diffs are
+   * composed first, so the instance is traversed only once. This operation is done immutably.
+   *
+   * @param diffs the diffs to apply in order
+   * @return the json node with applied diffs
+   * @see JsonDiff#compose(List)
+   */
+  public JsonNode applyDiffs(List<JsonDiff> diffs) {
+    JsonDiffApplier applier = new JsonDiffApplier();
+    return applier.applyDiffs(this, diffs);
+  }
+
   /**
    * @param visitor the visitor to accept.
    */
@@ -103,4 +127,128 @@ public abstract class JsonNode {
     this.accept(formatter);
     return formatter.getFormattedJson();
   }
+
+  /**
+   * Write the current instance to the writer formatted using given number of spaces. The json is
+   * streamed through a small buffer, it is never held in memory as a whole.
+   *
+   * @param writer the writer to write to (it is flushed, but not closed)
+   * @param indent the number of spaces to indent
+   * @throws IOException if the json could not be written
+   */
+  public void writeTo(Writer writer, int indent) throws IOException {
+    writeTo(new JsonFormatter(indent, writer));
+  }
+
+  /**
+   * Write the current instance to the output stream as UTF-8 encoded json formatted using given
+   * number of spaces.
+   *
+   * @param outputStream the output stream to write to (it is flushed, but not closed)
+   * @param indent       the number of spaces to indent
+   * @throws IOException if the json could not be written
+   * @see #writeTo(Writer, int)
+   */
+  public void writeTo(OutputStream outputStream, int indent) throws IOException {
+    writeTo(new JsonFormatter(indent, outputStream));
+  }
+
+  /**
+   * Get the current instance as UTF-8 encoded json formatted with zero whitespace. The bytes are
+   * encoded directly from the tree, without building a string first.
+   *
+   * @return the UTF-8 encoded json
+   */
+  public byte[] toByteArray() {
+    return toByteArray(0);
+  }
+
+  /**
+   * Get the current instance as UTF-8 encoded json formatted using given number of spaces.
+   *
+   * @param indent the number of spaces to indent
+   * @return the UTF-8 encoded json
+   * @see #toByteArray()
+   */
+  public byte[] toByteArray(int indent) {
+    JsonOutput.Utf8Output output = new JsonOutput.Utf8Output();
+    try {
+      this.accept(new JsonFormatter(indent, output));
+      return output.toByteArray();
+    } finally {
+      output.release();
+    }
+  }
+
+  /**
+   * Write the current instance to the buffer as UTF-8 encoded json formatted using given number
+   * of spaces. The json is written from the position of the buffer (use {@link ByteBuffer#wrap(byte[],
+   * int, int)} to write into an array). If it does not fit, a larger buffer of the same kind with
+   * the content of the given one is allocated, so the returned buffer must be used afterwards (the
+   * given buffer keeps its position and limit then).
+   *
+   * @param buffer the buffer to write to
+   * @param indent the number of spaces to indent
+   * @return the buffer holding the json, positioned after it
+   */
+  public ByteBuffer writeTo(ByteBuffer buffer, int indent) {
+    JsonOutput.ByteBufferOutput output = new JsonOutput.ByteBufferOutput(buffer);
+    this.accept(new JsonFormatter(indent, output));
+    return output.getTarget();
+  }
+
+  /**
+   * Gets the 64-bit structural hash of the node. Equal nodes have equal fingerprints, json objects
+   * and arrays cache theirs until the subtree is modified.
+   *
+   * @return the fingerprint
+   * @see JsonContainer
+   */
+  abstract long fingerprint();
+
+  /**
+   * Checks whether the nodes are equal for the diffs. Nodes with different fingerprints are
+   * different. Json objects and arrays with equal fingerprints are considered equal without
+   * comparing them, so an unchanged subtree is skipped in O(1) once its fingerprint is cached (the
+   * chance of two different subtrees colliding in 64 bits is negligible). Primitives with equal
+   * fingerprints are compared by equals.
+   *
+   * @param a the first node
+   * @param b the second node
+   * @return true if the nodes are equal
+   */
+  static boolean structurallyEqual(JsonNode a, JsonNode b) {
+    return a == b || (a.fingerprint() == b.fingerprint() && equalFingerprints(a, b));
+  }
+
+  /**
+   * Checks whether the nodes with equal fingerprints are equal for the diffs.
+   *
+   * @see #structurallyEqual(JsonNode, JsonNode)
+   */
+  static boolean equalFingerprints(JsonNode a, JsonNode b) {
+    if (a instanceof JsonContainer) return b instanceof JsonContainer && a.isJsonObject() == b.isJsonObject();
+    return a.equals(b);
+  }
+
+  /**
+   * Mixes the bits of the value (the finalizer of MurmurHash3).
+   *
+   * @param value the value
+   * @return the mixed value
+   */
+  static long mix(long value) {
+    value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+    value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return value ^ (value >>> 33);
+  }
+
+  private void writeTo(JsonFormatter formatter) throws IOException {
+    try {
+      this.accept(formatter);
+      formatter.flush();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
 }
@@ -1,27 +1,51 @@
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 
 /**
- * The type Json object.
+ * The type Json object. The keys keep the order in which they were added (or parsed).
  */
-public class JsonObject extends JsonNode {
+public class JsonObject extends JsonContainer {
+  private static final long FINGERPRINT_SEED = 0x6A09E667F3BCC908L;
+
   private Map<String, JsonNode> children;
 
   /**
    * Instantiates a new Json object.
    */
   public JsonObject() {
-    children = new HashMap<>();
+    children = new CompactJsonMap();
   }
 
   /**
-   * Instantiates a new Json object from from the map.
+   * Instantiates a new Json object from from the map. The map is copied, its later
+   * modifications do not change the json object.
    *
    * @param values the values
    */
   public JsonObject(Map<String, JsonNode> values) {
-    this.children = values;
+    this(new CompactJsonMap(), values);
+  }
+
+  private JsonObject(Map<String, JsonNode> children, Map<String, JsonNode> values) {
+    this.children = children;
+    if (values != children) children.putAll(values);
+    if (children instanceof LazyJsonMap) {
+      // the lazy values are attached when they are parsed
+      ((LazyJsonMap) children).attachTo(this);
+    } else {
+      for (JsonNode child : children.values()) attach(child);
+    }
+  }
+
+  /**
+   * Creates a json object backed by the map, which is not copied. The map must not be modified
+   * other than through the json object.
+   *
+   * @param children the children
+   * @return the json object
+   */
+  static JsonObject wrap(Map<String, JsonNode> children) {
+    return new JsonObject(children, children);
   }
 
   /**
@@ -34,7 +58,12 @@ public class JsonObject extends JsonNode {
   public JsonObject(String jsonObjectString) throws MalformedJsonException {
     JsonNode node = JsonParser.parse(jsonObjectString);
     if (!(node instanceof JsonObject)) throw new MalformedJsonException(jsonObjectString + " is not of type JsonObject");
-    children = ((JsonObject) node).children;
+    JsonObject parsed = (JsonObject) node;
+    children = parsed.children;
+    for (JsonNode child : children.values()) {
+      parsed.detach(child);
+      attach(child);
+    }
   }
 
   /**
@@ -44,7 +73,10 @@ public class JsonObject extends JsonNode {
    * @param value the value
    */
   public void add(String key, JsonNode value) {
-    children.put(key, value);
+    JsonNode previous = children.put(key, value);
+    attach(value);
+    if (previous != null) detach(previous);
+    modified();
   }
 
   /**
@@ -54,7 +86,12 @@ public class JsonObject extends JsonNode {
    * @return the removed json node
    */
   public JsonNode remove(String key) {
-    return children.remove(key);
+    JsonNode removed = children.remove(key);
+    if (removed != null) {
+      detach(removed);
+      modified();
+    }
+    return removed;
   }
 
   @Override
@@ -71,27 +108,30 @@ public class JsonObject extends JsonNode {
   public JsonDiff createDiff(JsonNode target) {
     JsonDiff diff = new JsonDiff();
     if (!(target instanceof JsonObject)) {
-      diff.addToRemoved(new JsonPrimitive<>(true));
+      diff.addToRemoved(JsonPrimitive.of(true));
       diff.addToAdded(target);
     } else {
-      JsonObject add = new JsonObject(), rem = new JsonObject();
+      // the diff is built in plain maps, it does not touch the nodes being compared
+      Map<String, JsonNode> add = new CompactJsonMap(), rem = new CompactJsonMap(), splice = new CompactJsonMap();
       JsonObject targetJsonObject = (JsonObject) target;
       // remove keys
       for (String key : getKeys()) {
-        if (!targetJsonObject.has(key)) rem.add(key, new JsonPrimitive<>(true));
+        if (!targetJsonObject.has(key)) rem.put(key, JsonPrimitive.of(true));
       }
       // add keys
       for (String key : targetJsonObject.getKeys()) {
         if (!has(key)) {
-          add.add(key, targetJsonObject.get(key));
-        } else if (!targetJsonObject.get(key).toString().equals(this.get(key).toString())) {
+          add.put(key, targetJsonObject.get(key));
+        } else if (!structurallyEqual(this.get(key), targetJsonObject.get(key))) {
           JsonDiff childDiff = this.get(key).createDiff(targetJsonObject.get(key));
-          if (childDiff.isSomethingAdded()) add.add(key, childDiff.getAdded());
-          if (childDiff.isSomethingRemoved()) rem.add(key, childDiff.getRemoved());
+          if (childDiff.isSomethingAdded()) add.put(key, childDiff.getAdded());
+          if (childDiff.isSomethingRemoved()) rem.put(key, childDiff.getRemoved());
+          if (childDiff.isSomethingSpliced()) splice.put(key, childDiff.getSpliced());
         }
       }
-      if (!add.getChildren().isEmpty()) diff.addToAdded(add);
-      if (!rem.getChildren().isEmpty()) diff.addToRemoved(rem);
+      if (!add.isEmpty()) diff.addToAdded(wrap(add));
+      if (!rem.isEmpty()) diff.addToRemoved(wrap(rem));
+      if (!splice.isEmpty()) diff.addToSpliced(wrap(splice));
     }
     return diff;
   }
@@ -130,6 +170,15 @@ public class JsonObject extends JsonNode {
     visitor.visit(this);
   }
 
+  /**
+   * Copies the object, the values are shared with this object.
+   *
+   * @return the shallow copy
+   */
+  JsonObject shallowCopy() {
+    return new JsonObject(children);
+  }
+
   /**
    * Gets the read-only copy of values in the json object.
    *
@@ -141,7 +190,22 @@ public class JsonObject extends JsonNode {
 
   @Override
   public boolean equals(Object obj) {
-    return obj instanceof JsonObject && ((this == obj) || children.equals(((JsonObject) obj).children));
+    if (this == obj) return true;
+    if (!(obj instanceof JsonObject)) return false;
+    JsonObject other = (JsonObject) obj;
+    // objects with cached fingerprints are different if the fingerprints are
+    if (differsByFingerprint(other)) return false;
+    return children.equals(other.children);
+  }
+
+  @Override
+  long computeFingerprint() {
+    // the order of the keys does not matter
+    long sum = 0;
+    for (Map.Entry<String, JsonNode> entry : children.entrySet()) {
+      sum += mix(JsonPrimitive.fingerprintString(entry.getKey()) * FINGERPRINT_PRIME + entry.getValue().fingerprint());
+    }
+    return mix(sum ^ children.size() ^ FINGERPRINT_SEED);
   }
 
   @Override
@@ -0,0 +1,434 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Target of the formatted json. Output written to writers, streams and channels is collected in
+ * a fixed-size buffer, which is written out when it is full or when the output is flushed, output
+ * written to byte buffers is encoded into them directly. I/O errors are rethrown as
+ * {@link UncheckedIOException}.
+ *
+ * @see JsonFormatter
+ */
+abstract class JsonOutput {
+  static final int BUFFER_SIZE = 8192;
+
+  /**
+   * Writes the character.
+   *
+   * @param c the character
+   */
+  abstract void write(char c);
+
+  /**
+   * Writes the characters of the string.
+   *
+   * @param s the string
+   */
+  void write(String s) {
+    write(s, 0, s.length());
+  }
+
+  /**
+   * Writes the characters of the string in the given range.
+   *
+   * @param s     the string
+   * @param start the index of the first character
+   * @param end   the index after the last character
+   */
+  abstract void write(String s, int start, int end);
+
+  /**
+   * Writes the decimal representation of the number.
+   *
+   * @param value the number
+   */
+  void write(long value) {
+    write(Long.toString(value));
+  }
+
+  /**
+   * Writes the decimal representation of the number (same as {@link Double#toString(double)}).
+   *
+   * @param value the number
+   */
+  void write(double value) {
+    write(Double.toString(value));
+  }
+
+  /**
+   * Writes out the buffered output and flushes the target.
+   */
+  void flush() {
+  }
+
+  /**
+   * Output collected in a string builder.
+   */
+  static class StringOutput extends JsonOutput {
+    private final StringBuilder builder = new StringBuilder();
+
+    @Override
+    void write(char c) {
+      builder.append(c);
+    }
+
+    @Override
+    void write(String s) {
+      builder.append(s);
+    }
+
+    @Override
+    void write(String s, int start, int end) {
+      builder.append(s, start, end);
+    }
+
+    @Override
+    void write(long value) {
+      builder.append(value);
+    }
+
+    @Override
+    void write(double value) {
+      builder.append(value);
+    }
+
+    @Override
+    public String toString() {
+      return builder.toString();
+    }
+  }
+
+  /**
+   * Output written to a writer.
+   */
+  static class WriterOutput extends JsonOutput {
+    private final Writer writer;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int count;
+
+    WriterOutput(Writer writer) {
+      this.writer = writer;
+    }
+
+    @Override
+    void write(char c) {
+      if (count == buffer.length) flushBuffer();
+      buffer[count++] = c;
+    }
+
+    @Override
+    void write(String s, int start, int end) {
+      int length = end - start;
+      if (length > buffer.length - count) {
+        flushBuffer();
+        if (length > buffer.length) {
+          try {
+            writer.write(s, start, length);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          return;
+        }
+      }
+      s.getChars(start, end, buffer, count);
+      count += length;
+    }
+
+    @Override
+    void flush() {
+      flushBuffer();
+      try {
+        writer.flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private void flushBuffer() {
+      try {
+        writer.write(buffer, 0, count);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      count = 0;
+    }
+  }
+
+  /**
+   * Output encoded to UTF-8 directly (without a charset encoder) and written to a stream or
+   * a channel, or collected in a growing byte array. Unpaired surrogates are written as '?'.
+   * Outputs without a stream or a channel take their buffer from a per-thread pool, they must be
+   * {@link #release() released} once the json is complete.
+   */
+  static class Utf8Output extends JsonOutput {
+    // larger buffers are not kept in the pool
+    private static final int MAX_POOLED_SIZE = 256 * 1024;
+    private static final ThreadLocal<byte[]> POOL = new ThreadLocal<>();
+
+    private final OutputStream stream;
+    private final WritableByteChannel channel;
+    private byte[] buffer;
+    private ByteBuffer wrapped;
+    private int count;
+
+    Utf8Output(OutputStream stream) {
+      this.stream = stream;
+      this.channel = null;
+      this.buffer = new byte[BUFFER_SIZE];
+    }
+
+    Utf8Output(WritableByteChannel channel) {
+      this.stream = null;
+      this.channel = channel;
+      this.buffer = new byte[BUFFER_SIZE];
+      this.wrapped = ByteBuffer.wrap(buffer);
+    }
+
+    /**
+     * Instantiates an output collecting the json in the pooled buffer.
+     */
+    Utf8Output() {
+      this.stream = null;
+      this.channel = null;
+      byte[] pooled = POOL.get();
+      if (pooled != null) POOL.set(null);
+      this.buffer = pooled != null ? pooled : new byte[BUFFER_SIZE];
+    }
+
+    @Override
+    void write(char c) {
+      // the longest encoding of a character
+      require(3);
+      if (c < 0x80) buffer[count++] = (byte) c;
+      else if (Character.isSurrogate(c)) buffer[count++] = '?';
+      else encode(c);
+    }
+
+    @Override
+    void write(String s, int start, int end) {
+      for (int i = start; i < end; i++) {
+        char c = s.charAt(i);
+        require(4);
+        if (c < 0x80) {
+          buffer[count++] = (byte) c;
+        } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+          int codePoint = Character.toCodePoint(c, s.charAt(++i));
+          buffer[count++] = (byte) (0xF0 | codePoint >> 18);
+          buffer[count++] = (byte) (0x80 | (codePoint >> 12 & 0x3F));
+          buffer[count++] = (byte) (0x80 | (codePoint >> 6 & 0x3F));
+          buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+          buffer[count++] = '?';
+        } else {
+          encode(c);
+        }
+      }
+    }
+
+    @Override
+    void write(long value) {
+      if (value == Long.MIN_VALUE) {
+        write(Long.toString(value));
+        return;
+      }
+      // the longest long has 19 digits and the sign
+      require(20);
+      if (value < 0) {
+        buffer[count++] = '-';
+        value = -value;
+      }
+      int digits = 1;
+      for (long rest = value / 10; rest != 0; rest /= 10) digits++;
+      for (int i = count + digits - 1; i >= count; i--) {
+        buffer[i] = (byte) ('0' + value % 10);
+        value /= 10;
+      }
+      count += digits;
+    }
+
+    @Override
+    void flush() {
+      flushBuffer();
+      try {
+        if (stream != null) stream.flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    /**
+     * Encodes a character of the basic multilingual plane, which is not ASCII nor surrogate.
+     */
+    private void encode(char c) {
+      if (c < 0x800) {
+        buffer[count++] = (byte) (0xC0 | c >> 6);
+      } else {
+        buffer[count++] = (byte) (0xE0 | c >> 12);
+        buffer[count++] = (byte) (0x80 | (c >> 6 & 0x3F));
+      }
+      buffer[count++] = (byte) (0x80 | (c & 0x3F));
+    }
+
+    /**
+     * Gets the json collected in the buffer.
+     *
+     * @return the UTF-8 encoded json
+     */
+    byte[] toByteArray() {
+      return Arrays.copyOf(buffer, count);
+    }
+
+    /**
+     * Returns the buffer to the pool. The output must not be used afterwards.
+     */
+    void release() {
+      if (buffer.length <= MAX_POOLED_SIZE) POOL.set(buffer);
+      buffer = null;
+    }
+
+    /**
+     * Makes room for the given number of bytes, the buffer is written out or it grows if there
+     * is nowhere to write it.
+     */
+    private void require(int length) {
+      if (buffer.length - count >= length) return;
+      flushBuffer();
+      if (buffer.length - count < length) buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + length));
+    }
+
+    private void flushBuffer() {
+      try {
+        if (stream != null) {
+          stream.write(buffer, 0, count);
+        } else if (channel != null) {
+          wrapped.limit(count).position(0);
+          while (wrapped.hasRemaining()) channel.write(wrapped);
+        } else {
+          // the json is collected in the buffer
+          return;
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      count = 0;
+    }
+  }
+
+  /**
+   * Output encoded to UTF-8 straight into a byte buffer (heap or direct) from its position, the
+   * same way as by {@link Utf8Output}. When the json does not fit, a larger buffer of the same
+   * kind is allocated and the bytes written so far are copied to it; the given buffer is then
+   * left with its original position and limit.
+   */
+  static class ByteBufferOutput extends JsonOutput {
+    private final ByteBuffer initial;
+    private final int start;
+    private ByteBuffer target;
+
+    /**
+     * Instantiates an output writing to the byte buffer.
+     *
+     * @param target the buffer to write the json to from its position
+     */
+    ByteBufferOutput(ByteBuffer target) {
+      this.initial = target;
+      this.start = target.position();
+      this.target = target;
+    }
+
+    @Override
+    void write(char c) {
+      // the longest encoding of a character
+      require(3);
+      if (c < 0x80) target.put((byte) c);
+      else if (Character.isSurrogate(c)) target.put((byte) '?');
+      else encode(c);
+    }
+
+    @Override
+    void write(String s, int start, int end) {
+      for (int i = start; i < end; i++) {
+        char c = s.charAt(i);
+        require(4);
+        if (c < 0x80) {
+          target.put((byte) c);
+        } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+          int codePoint = Character.toCodePoint(c, s.charAt(++i));
+          target.put((byte) (0xF0 | codePoint >> 18));
+          target.put((byte) (0x80 | (codePoint >> 12 & 0x3F)));
+          target.put((byte) (0x80 | (codePoint >> 6 & 0x3F)));
+          target.put((byte) (0x80 | (codePoint & 0x3F)));
+        } else if (Character.isSurrogate(c)) {
+          target.put((byte) '?');
+        } else {
+          encode(c);
+        }
+      }
+    }
+
+    @Override
+    void write(long value) {
+      if (value == Long.MIN_VALUE) {
+        write(Long.toString(value));
+        return;
+      }
+      // the longest long has 19 digits and the sign
+      require(20);
+      if (value < 0) {
+        target.put((byte) '-');
+        value = -value;
+      }
+      int digits = 1;
+      for (long rest = value / 10; rest != 0; rest /= 10) digits++;
+      int position = target.position();
+      for (int i = position + digits - 1; i >= position; i--) {
+        target.put(i, (byte) ('0' + value % 10));
+        value /= 10;
+      }
+      target.position(position + digits);
+    }
+
+    /**
+     * Encodes a character of the basic multilingual plane, which is not ASCII nor surrogate.
+     */
+    private void encode(char c) {
+      if (c < 0x800) {
+        target.put((byte) (0xC0 | c >> 6));
+      } else {
+        target.put((byte) (0xE0 | c >> 12));
+        target.put((byte) (0x80 | (c >> 6 & 0x3F)));
+      }
+      target.put((byte) (0x80 | (c & 0x3F)));
+    }
+
+    /**
+     * Gets the buffer the json was written to. It is the buffer given to the constructor unless
+     * the json did not fit in it.
+     *
+     * @return the target buffer positioned after the json
+     */
+    ByteBuffer getTarget() {
+      return target;
+    }
+
+    /**
+     * Makes room for the given number of bytes, the target is replaced by a larger buffer if it is full.
+     */
+    private void require(int length) {
+      if (target.remaining() >= length) return;
+      int capacity = Math.max(target.capacity() * 2, target.position() + length);
+      ByteBuffer larger = target.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+      // copied from a duplicate, so the limit of the given buffer does not change
+      ByteBuffer written = target.duplicate();
+      written.flip();
+      larger.put(written);
+      if (target == initial) initial.position(start);
+      target = larger;
+    }
+  }
+}
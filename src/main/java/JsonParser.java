@@ -1,32 +1,32 @@
 import java.io.*;
-import java.math.BigDecimal;
-import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
 
 /**
- * The type Json parser.
+ * The type Json parser. Builds json node trees from the tokens of {@link JsonReader}.
  */
 public class JsonParser {
-  private static final char DECIMAL_POINT = '.';
-  private static final String TRUE_STR = "true";
-  private static final String FALSE_STR = "false";
-
-  private enum INTEGRAL_TYPES {
+  /**
+   * The parsing engine.
+   */
+  public enum Engine {
     /**
-     * Byte integral types.
-     */
-    BYTE, /**
-     * Short integral types.
+     * Reads the input character by character using {@link JsonReader}.
      */
-    SHORT, /**
-     * Int integral types.
-     */
-    INT, /**
-     * Long integral types.
+    STREAMING,
+    /**
+     * Builds a structural index of the whole input first, scanning it in wide blocks, and then
+     * builds the tree by walking the index. Faster for large documents which are already in memory.
      */
-    LONG, /**
-     * Big int integral types.
+    STRUCTURAL_INDEX,
+    /**
+     * Like {@link #STRUCTURAL_INDEX}, but the elements of a top level array are parsed in parallel
+     * in the common fork join pool. Meant for huge arrays of many elements.
      */
-    BIG_INT
+    PARALLEL
   }
 
   /**
@@ -37,144 +37,339 @@ public class JsonParser {
    * @throws MalformedJsonException the malformed json exception it the string could not be parsed
    */
   public static JsonNode parse(String jsonString) throws MalformedJsonException {
-    jsonString = jsonString.replaceAll("\\s+", "");
-    Pair<JsonNode, Integer> res = internalParse(jsonString, 0);
-    if (res.second != jsonString.length()) throw new MalformedJsonException(jsonString, res.second);
-    // must not be primitive
-    if (res.first instanceof JsonPrimitive) throw new MalformedJsonException(jsonString, 0);
-    return res.first;
+    return parseDocument(new JsonReader(jsonString));
   }
 
-  private static Pair<JsonNode, Integer> internalParse(String jsonString, int start) throws MalformedJsonException {
-    char startChar = charAt(jsonString, start);
-    int pos = start + 1;
-    switch (startChar) {
-      case '{':
-        JsonObject jsonObject = new JsonObject();
-        while (charAt(jsonString, pos) != '}') {
-          Pair<String, Integer> parsedKey = parseString(jsonString, pos);
-          if (charAt(jsonString, parsedKey.second) != ':') {
-            throw new MalformedJsonException(jsonString, parsedKey.second);
-          }
-          Pair<JsonNode, Integer> parsedValue = internalParse(jsonString, parsedKey.second + 1);
-          jsonObject.add(parsedKey.first, parsedValue.first);
-          pos = parsedValue.second;
-          if (charAt(jsonString, pos) != ',') {
-            if (charAt(jsonString, pos) == '}') break;
-            else throw new MalformedJsonException(jsonString, pos);
-          }
-          pos++;
-        }
-        return new Pair<>(jsonObject, pos + 1);
-      case '[':
-        JsonArray jsonArray = new JsonArray();
-        while (charAt(jsonString, pos) != ']') {
-          Pair<JsonNode, Integer> parsedValue = internalParse(jsonString, pos);
-          jsonArray.add(parsedValue.first);
-          pos = parsedValue.second;
-          if (charAt(jsonString, pos) != ',') {
-            if (charAt(jsonString, pos) == ']') break;
-            else throw new MalformedJsonException(jsonString, pos);
-          }
-          pos++;
-        }
-        return new Pair<>(jsonArray, pos + 1);
-      default:
-        if (charAt(jsonString, start) == '\"') {
-          Pair<String, Integer> parsedString = parseString(jsonString, start);
-          return new Pair<>(new JsonPrimitive<>(parsedString.first), parsedString.second);
-        } else if (Character.isDigit(charAt(jsonString, start)) || charAt(jsonString, start) == DECIMAL_POINT) {
-          Pair<Number, Integer> parsedNumber = parseNumber(jsonString, start);
-          return new Pair<>(new JsonPrimitive<>(parsedNumber.first), parsedNumber.second);
-        } else if (substring(jsonString, start, start + TRUE_STR.length()).equals(TRUE_STR)) {
-          return new Pair<>(new JsonPrimitive<>(true), start + TRUE_STR.length());
-        } else if (substring(jsonString, start, start + FALSE_STR.length()).equals(FALSE_STR)) {
-          return new Pair<>(new JsonPrimitive<>(false), start + FALSE_STR.length());
-        } else {
-          throw new MalformedJsonException(jsonString, start);
-        }
-    }
+  /**
+   * Parse json node from the reader. The reader is consumed through a fixed-size buffer and is
+   * not closed afterwards. I/O errors are rethrown as {@link UncheckedIOException}.
+   *
+   * @param reader the reader from which to read
+   * @return the parsed json node
+   * @throws MalformedJsonException the malformed json exception it the input could not be parsed
+   */
+  public static JsonNode parse(Reader reader) throws MalformedJsonException {
+    return parseDocument(new JsonReader(reader));
   }
 
-  private static String substring(String jsonString, int start, int end) throws MalformedJsonException {
-    try {
-      return jsonString.substring(start, end);
-    } catch (Exception e) {
-      throw new MalformedJsonException(jsonString, start);
+  /**
+   * Parse json node from the UTF-8 encoded input stream. The stream is read through a fixed-size
+   * buffer without decoding it to characters and is not closed afterwards.
+   *
+   * @param inputStream the input stream from which to read
+   * @return the parsed json node
+   * @throws MalformedJsonException the malformed json exception it the input could not be parsed
+   * @see JsonParser#parse(Reader)
+   */
+  public static JsonNode parse(InputStream inputStream) throws MalformedJsonException {
+    return parseDocument(new JsonReader(inputStream));
+  }
+
+  /**
+   * Parse json node from the UTF-8 encoded channel. The channel is not closed afterwards.
+   *
+   * @param channel the channel from which to read
+   * @return the parsed json node
+   * @throws MalformedJsonException the malformed json exception it the input could not be parsed
+   * @see JsonParser#parse(InputStream)
+   */
+  public static JsonNode parse(ReadableByteChannel channel) throws MalformedJsonException {
+    return parseDocument(new JsonReader(channel));
+  }
+
+  /**
+   * Parse json node from the UTF-8 encoded bytes. The bytes are parsed in place, only string
+   * values are decoded.
+   *
+   * @param bytes the bytes to parse from
+   * @return the parsed json node
+   * @throws MalformedJsonException the malformed json exception it the input could not be parsed
+   */
+  public static JsonNode parse(byte[] bytes) throws MalformedJsonException {
+    return parseDocument(new JsonReader(bytes));
+  }
+
+  /**
+   * Parse json node from the UTF-8 encoded bytes using the given engine. All engines produce
+   * the same trees.
+   *
+   * @param bytes  the bytes to parse from
+   * @param engine the parsing engine
+   * @return the parsed json node
+   * @throws MalformedJsonException the malformed json exception it the input could not be parsed
+   */
+  public static JsonNode parse(byte[] bytes, Engine engine) throws MalformedJsonException {
+    if (engine == Engine.STRUCTURAL_INDEX) return StructuralIndexParser.parse(bytes, 0, bytes.length);
+    if (engine == Engine.PARALLEL) return StructuralIndexParser.parseParallel(bytes, 0, bytes.length);
+    return parse(bytes);
+  }
+
+  /**
+   * Parse json node from the string using the given engine. The structural index engines work on
+   * UTF-8 bytes, so the string is encoded first.
+   *
+   * @param jsonString the json string to parse from
+   * @param engine     the parsing engine
+   * @return the parsed json node
+   * @throws MalformedJsonException the malformed json exception it the string could not be parsed
+   */
+  public static JsonNode parse(String jsonString, Engine engine) throws MalformedJsonException {
+    if (engine == Engine.STREAMING) return parse(jsonString);
+    return parse(jsonString.getBytes(StandardCharsets.UTF_8), engine);
+  }
+
+  /**
+   * Parse json node from the remaining UTF-8 encoded bytes of the buffer. Heap buffers are parsed in
+   * place, direct buffers are read in small chunks. The position of the buffer is not modified.
+   *
+   * @param buffer the buffer to parse from
+   * @return the parsed json node
+   * @throws MalformedJsonException the malformed json exception it the input could not be parsed
+   */
+  public static JsonNode parse(ByteBuffer buffer) throws MalformedJsonException {
+    return parseDocument(new JsonReader(buffer));
+  }
+
+  /**
+   * Parse json node from the UTF-8 encoded file. The file is memory mapped and parsed straight
+   * from the mapped region, files larger than 2 GB are mapped in windows.
+   *
+   * @param path the path of the file to parse
+   * @return the parsed json node
+   * @throws IOException            if the file could not be opened
+   * @throws MalformedJsonException the malformed json exception it the input could not be parsed
+   */
+  public static JsonNode parse(Path path) throws IOException, MalformedJsonException {
+    try (JsonReader reader = new JsonReader(path)) {
+      return parseDocument(reader);
     }
   }
 
-  private static char charAt(String jsonString, int pos) throws MalformedJsonException {
-    if (pos < jsonString.length()) return jsonString.charAt(pos);
-    throw new MalformedJsonException(jsonString, pos);
+  /**
+   * Parse json node from the string lazily. The document is validated, but only the positions of
+   * the values of the top level object or array are indexed. Values of objects and arrays are
+   * parsed (and indexed) when they are accessed for the first time and then cached, so the cost
+   * of the parsing scales with the parts of the document which are actually read. The lazy tree
+   * keeps the input referenced and must not be accessed from multiple threads concurrently.
+   *
+   * @param jsonString the json string to parse from
+   * @return the lazily parsed json node
+   * @throws MalformedJsonException the malformed json exception it the string could not be parsed
+   */
+  public static JsonNode parseLazy(String jsonString) throws MalformedJsonException {
+    return parseLazyDocument(new JsonReader(jsonString));
   }
 
-  private static Pair<Number, Integer> parseNumber(String jsonString, int pos) throws MalformedJsonException {
-    int endPos = pos;
-    boolean decimalPointFound = false;
-    while (endPos < jsonString.length() && (Character.isDigit(charAt(jsonString, endPos))) || charAt(jsonString, endPos) == DECIMAL_POINT) {
-      if (charAt(jsonString, endPos) == DECIMAL_POINT) {
-        if (decimalPointFound) throw new MalformedJsonException(jsonString, endPos);
-        decimalPointFound = true;
-      }
-      endPos++;
+  /**
+   * Parse json node from the UTF-8 encoded bytes lazily.
+   *
+   * @param bytes the bytes to parse from
+   * @return the lazily parsed json node
+   * @throws MalformedJsonException the malformed json exception it the input could not be parsed
+   * @see JsonParser#parseLazy(String)
+   */
+  public static JsonNode parseLazy(byte[] bytes) throws MalformedJsonException {
+    return parseLazyDocument(new JsonReader(bytes));
+  }
+
+  /**
+   * Parse json node from the remaining UTF-8 encoded bytes of the buffer lazily. The content of
+   * the buffer must not be modified while the lazy tree is used.
+   *
+   * @param buffer the buffer to parse from
+   * @return the lazily parsed json node
+   * @throws MalformedJsonException the malformed json exception it the input could not be parsed
+   * @see JsonParser#parseLazy(String)
+   */
+  public static JsonNode parseLazy(ByteBuffer buffer) throws MalformedJsonException {
+    return parseLazyDocument(new JsonReader(buffer));
+  }
+
+  /**
+   * Parse the value at the given position of the reader. Objects and arrays are not read, they
+   * are returned as lazy nodes, which read them when they are accessed.
+   *
+   * @param reader   the reader of the whole document
+   * @param position the position of the value
+   * @return the lazily parsed json node
+   * @throws MalformedJsonException the malformed json exception it the input could not be parsed
+   */
+  static JsonNode parseLazy(JsonReader reader, long position) throws MalformedJsonException {
+    reader.seek(position);
+    switch (reader.peek()) {
+      case BEGIN_OBJECT:
+        return JsonObject.wrap(new LazyJsonMap(reader, position));
+      case BEGIN_ARRAY:
+        return JsonArray.wrap(new LazyJsonList(reader, position));
+      default:
+        return parse(reader);
     }
-    if (endPos - pos <= 1) throw new MalformedJsonException(jsonString, pos);
-    if (decimalPointFound) {
-      BigDecimal decimal = new BigDecimal(jsonString.substring(pos, endPos));
-      // NOTE: we convert to double (don't care about lost precision)
-      return new Pair<>(decimal.doubleValue(), endPos);
+  }
+
+  private static JsonNode parseLazyDocument(JsonReader reader) throws MalformedJsonException {
+    checkDocumentStart(reader);
+    long start = reader.getTokenStart();
+    JsonNode res;
+    // indexing the top level value skips (and so validates) the whole document
+    if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+      LazyJsonMap children = new LazyJsonMap(reader, start);
+      children.index();
+      res = JsonObject.wrap(children);
     } else {
-      BigInteger integer = new BigInteger(jsonString.substring(pos, endPos));
-      return new Pair<>(getCorrectNumberType(integer), endPos);
+      LazyJsonList children = new LazyJsonList(reader, start);
+      children.index();
+      res = JsonArray.wrap(children);
     }
+    checkDocumentEnd(reader);
+    return res;
   }
 
-  private static Number getCorrectNumberType(BigInteger integer) {
-    Number number = integer;
-    for (INTEGRAL_TYPES type : INTEGRAL_TYPES.values()) {
-      try {
-        switch (type) {
-          case BYTE:
-            number = integer.byteValueExact();
-          case INT:
-            number = integer.intValueExact();
-          case LONG:
-            number = integer.longValueExact();
-          case SHORT:
-            number = integer.shortValueExact();
-          case BIG_INT:
-            number = integer;
+  /**
+   * Parse the next value of the reader. Unlike the other parse methods, the value may be a
+   * primitive and the rest of the input is left unread, so this can be used to materialize
+   * only a part of the document.
+   *
+   * @param reader the reader positioned before the value
+   * @return the parsed json node
+   * @throws MalformedJsonException the malformed json exception it the input could not be parsed
+   */
+  public static JsonNode parse(JsonReader reader) throws MalformedJsonException {
+    JsonToken token = reader.peek();
+    switch (token) {
+      case BEGIN_OBJECT:
+        JsonObject jsonObject = new JsonObject();
+        reader.beginObject();
+        while (reader.hasNext()) {
+          String key = reader.nextName();
+          jsonObject.add(key, parse(reader));
         }
-      } catch (Exception ignored) {
-      }
+        reader.endObject();
+        return jsonObject;
+      case BEGIN_ARRAY:
+        reader.beginArray();
+        // arrays of numbers are stored packed
+        JsonArray jsonArray = JsonArray.wrap(reader.peek() == JsonToken.NUMBER ? new PackedNumberList() : new ArrayList<>());
+        while (reader.hasNext()) {
+          jsonArray.add(parse(reader));
+        }
+        reader.endArray();
+        return jsonArray;
+      case STRING:
+        return JsonPrimitive.of(reader.nextString());
+      case NUMBER:
+        return reader.nextNumberPrimitive();
+      case BOOLEAN:
+        return JsonPrimitive.of(reader.nextBoolean());
+      case NULL:
+        reader.nextNull();
+        return JsonPrimitive.ofNull();
+      default:
+        throw new MalformedJsonException("Unexpected " + token + " at pos: " + reader.getPosition());
     }
-    return number;
   }
 
-  private static Pair<String, Integer> parseString(String jsonString, int pos) throws MalformedJsonException {
-    StringBuilder keyBuilder = new StringBuilder();
-    if (charAt(jsonString, pos++) != '"') throw new MalformedJsonException(jsonString, pos);
-    while (pos < jsonString.length() && charAt(jsonString, pos) != '"') {
-      if (charAt(jsonString, pos) == '\\') pos++;
-      if (pos == jsonString.length()) throw new MalformedJsonException(jsonString, pos);
-      keyBuilder.append(charAt(jsonString, pos++));
-    }
-    if (charAt(jsonString, pos++) != '"') throw new MalformedJsonException(jsonString, pos);
-    return new Pair<>(keyBuilder.toString(), pos);
+  /**
+   * Parse json from the string and push its structure to the handler instead of building a tree.
+   *
+   * @param jsonString the json string to parse from
+   * @param handler    the handler receiving the parsed values
+   * @throws MalformedJsonException the malformed json exception it the string could not be parsed
+   */
+  public static void parse(String jsonString, JsonHandler handler) throws MalformedJsonException {
+    parseDocument(new JsonReader(jsonString), handler);
   }
 
   /**
-   * Reads all the input from reader and then uses string parsing to parse the json.
+   * Parse json from the reader and push its structure to the handler instead of building a tree.
    *
-   * @param reader the reader from which to read
-   * @return the parsed json node
-   * @throws MalformedJsonException the malformed json exception it the string could not be parsed
-   * @see JsonParser#parse(String)
+   * @param reader  the reader from which to read
+   * @param handler the handler receiving the parsed values
+   * @throws MalformedJsonException the malformed json exception it the input could not be parsed
+   * @see JsonParser#parse(Reader)
    */
-  public static JsonNode parse(BufferedReader reader) throws MalformedJsonException {
-    StringBuilder builder = new StringBuilder();
-    reader.lines().forEach(builder::append);
-    return parse(builder.toString());
+  public static void parse(Reader reader, JsonHandler handler) throws MalformedJsonException {
+    parseDocument(new JsonReader(reader), handler);
+  }
+
+  /**
+   * Push the next value of the reader to the handler. Objects and arrays are walked iteratively,
+   * so the depth of the document is not limited by the stack size.
+   *
+   * @param reader  the reader positioned before the value
+   * @param handler the handler receiving the parsed values
+   * @throws MalformedJsonException the malformed json exception it the input could not be parsed
+   */
+  public static void parse(JsonReader reader, JsonHandler handler) throws MalformedJsonException {
+    int depth = 0;
+    do {
+      JsonToken token = reader.peek();
+      switch (token) {
+        case BEGIN_OBJECT:
+          reader.beginObject();
+          handler.startObject();
+          depth++;
+          break;
+        case END_OBJECT:
+          reader.endObject();
+          handler.endObject();
+          depth--;
+          break;
+        case BEGIN_ARRAY:
+          reader.beginArray();
+          handler.startArray();
+          depth++;
+          break;
+        case END_ARRAY:
+          reader.endArray();
+          handler.endArray();
+          depth--;
+          break;
+        case NAME:
+          handler.key(reader.nextName());
+          break;
+        case STRING:
+          handler.primitive(reader.nextString());
+          break;
+        case NUMBER:
+          handler.primitive(reader.nextNumber());
+          break;
+        case BOOLEAN:
+          handler.primitive(reader.nextBoolean());
+          break;
+        case NULL:
+          reader.nextNull();
+          handler.nullValue();
+          break;
+        default:
+          throw new MalformedJsonException("Unexpected " + token + " at pos: " + reader.getPosition());
+      }
+    } while (depth > 0);
+  }
+
+  private static void parseDocument(JsonReader reader, JsonHandler handler) throws MalformedJsonException {
+    checkDocumentStart(reader);
+    parse(reader, handler);
+    checkDocumentEnd(reader);
+  }
+
+  private static JsonNode parseDocument(JsonReader reader) throws MalformedJsonException {
+    checkDocumentStart(reader);
+    JsonNode res = parse(reader);
+    checkDocumentEnd(reader);
+    return res;
+  }
+
+  private static void checkDocumentStart(JsonReader reader) throws MalformedJsonException {
+    // must not be primitive
+    JsonToken token = reader.peek();
+    if (token != JsonToken.BEGIN_OBJECT && token != JsonToken.BEGIN_ARRAY) {
+      throw new MalformedJsonException("Top level value must be an object or an array");
+    }
+  }
+
+  private static void checkDocumentEnd(JsonReader reader) throws MalformedJsonException {
+    if (reader.peek() != JsonToken.END_DOCUMENT) {
+      throw new MalformedJsonException("Unexpected data after the top level value at pos: " + reader.getPosition());
+    }
   }
 }
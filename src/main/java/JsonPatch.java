@@ -0,0 +1,346 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * JSON Patch as defined by RFC 6902, an array of add, remove, replace, move, copy and test
+ * operations addressing the values by JSON Pointers (RFC 6901). For example:<br>
+ * [{"op":"replace","path":"/a/0","value":52},{"op":"remove","path":"/b"}]<br>
+ * Patches are created from the diff of two nodes, changes of arrays become operations on their
+ * elements. A patch is applied either in place or with structural sharing, when only the objects
+ * and arrays on the paths of the operations are copied and the rest of the tree is shared.
+ *
+ * @see JsonNode#createDiff(JsonNode)
+ * @see JsonMergePatch
+ */
+public class JsonPatch {
+  private final JsonArray operations;
+
+  /**
+   * Instantiates a new Json patch of the operations.
+   *
+   * @param operations the operations
+   */
+  public JsonPatch(JsonArray operations) {
+    this.operations = operations;
+  }
+
+  /**
+   * Instantiates a new Json patch by parsing the argument.
+   *
+   * @param jsonPatchString the json patch string
+   * @throws MalformedJsonException the malformed json exception if the
+   * string in not a valid JsonArray instance.
+   */
+  public JsonPatch(String jsonPatchString) throws MalformedJsonException {
+    this(new JsonArray(jsonPatchString));
+  }
+
+  /**
+   * Creates the patch turning the source into the target.
+   *
+   * @param source the source node
+   * @param target the target node
+   * @return the json patch
+   */
+  public static JsonPatch create(JsonNode source, JsonNode target) {
+    JsonDiff diff = source.createDiff(target);
+    JsonArray operations = new JsonArray();
+    addOperations(operations, "", source, diff.getAdded(), diff.getRemoved(), diff.getSpliced());
+    return new JsonPatch(operations);
+  }
+
+  /**
+   * Gets the operations of the patch.
+   *
+   * @return the operations
+   */
+  public JsonArray getOperations() {
+    return operations;
+  }
+
+  /**
+   * Applies the patch with structural sharing. The document is not modified, the objects and
+   * arrays on the paths of the operations are copied and the rest is shared with the result.
+   *
+   * @param document the json node on which to apply the patch
+   * @return the patched json node
+   * @throws JsonPatchException if an operation could not be applied
+   */
+  public JsonNode apply(JsonNode document) throws JsonPatchException {
+    return new Application(document, false).apply(operations);
+  }
+
+  /**
+   * Applies the patch by modifying the document. If an operation fails, the operations before it
+   * stay applied.
+   *
+   * @param document the json node on which to apply the patch
+   * @return the patched json node, a different one only if the whole document was replaced
+   * @throws JsonPatchException if an operation could not be applied
+   */
+  public JsonNode applyInPlace(JsonNode document) throws JsonPatchException {
+    return new Application(document, true).apply(operations);
+  }
+
+  @Override
+  public String toString() {
+    return operations.toString();
+  }
+
+  /**
+   * Recursively traverse the diff of the value at the path and add the operations applying it.
+   */
+  private static void addOperations(JsonArray operations, String path, JsonNode source, JsonNode add,
+                                    JsonNode remove, JsonNode splice) {
+    if (add == null && remove == null && splice == null) return;
+    if (remove != null && remove.isJsonPrimitive()) {
+      // the value is removed or replaced as a whole
+      operations.add(add != null ? operation("replace", path, add) : operation("remove", path, null));
+    } else if (splice != null && splice.isJsonArray()) {
+      addSpliceOperations(operations, path, splice.getAsJsonArray());
+    } else if (add != null && (source == null || !source.isJsonObject() || !add.isJsonObject())) {
+      operations.add(operation(source != null ? "replace" : "add", path, add));
+    } else {
+      JsonObject sourceObject = source.getAsJsonObject();
+      JsonObject addObject = add != null ? add.getAsJsonObject() : new JsonObject();
+      JsonObject removeObject = remove != null ? remove.getAsJsonObject() : new JsonObject();
+      JsonObject spliceObject = splice != null ? splice.getAsJsonObject() : new JsonObject();
+      for (String key : removeObject.getKeys()) {
+        addOperations(operations, path + "/" + escape(key), sourceObject.get(key), addObject.get(key),
+                removeObject.get(key), spliceObject.get(key));
+      }
+      for (String key : spliceObject.getKeys()) {
+        if (removeObject.has(key)) continue;
+        addOperations(operations, path + "/" + escape(key), sourceObject.get(key), addObject.get(key), null,
+                spliceObject.get(key));
+      }
+      for (String key : addObject.getKeys()) {
+        if (removeObject.has(key) || spliceObject.has(key)) continue;
+        addOperations(operations, path + "/" + escape(key), sourceObject.get(key), addObject.get(key), null, null);
+      }
+    }
+  }
+
+  /**
+   * Converts the splices of the array at the path to the operations on its elements. The indices
+   * of the splices refer to the source array, they are shifted by the preceding splices.
+   */
+  private static void addSpliceOperations(JsonArray operations, String path, JsonArray splices) {
+    int shift = 0;
+    for (JsonNode node : splices.getChildren()) {
+      JsonObject splice = node.getAsJsonObject();
+      int index = (int) splice.get("index").getAsJsonPrimitive().getAsLong() + shift;
+      int removed = splice.has("remove") ? (int) splice.get("remove").getAsJsonPrimitive().getAsLong() : 0;
+      List<JsonNode> added = splice.has("add") ? splice.get("add").getAsJsonArray().getChildren()
+              : Collections.<JsonNode>emptyList();
+      int replaced = Math.min(removed, added.size());
+      for (int i = 0; i < replaced; i++) operations.add(operation("replace", path + "/" + (index + i), added.get(i)));
+      for (int i = replaced; i < removed; i++) operations.add(operation("remove", path + "/" + (index + replaced), null));
+      for (int i = replaced; i < added.size(); i++) operations.add(operation("add", path + "/" + (index + i), added.get(i)));
+      shift += added.size() - removed;
+    }
+  }
+
+  private static JsonObject operation(String op, String path, JsonNode value) {
+    JsonObject operation = new JsonObject();
+    operation.add("op", JsonPrimitive.of(op));
+    operation.add("path", JsonPrimitive.of(path));
+    if (value != null) operation.add("value", value);
+    return operation;
+  }
+
+  private static String escape(String key) {
+    return key.replace("~", "~0").replace("/", "~1");
+  }
+
+  /**
+   * Parses the JSON Pointer to the reference tokens.
+   */
+  private static List<String> parsePointer(String pointer) throws JsonPatchException {
+    List<String> tokens = new ArrayList<>();
+    if (pointer.isEmpty()) return tokens;
+    if (pointer.charAt(0) != '/') throw new JsonPatchException("Invalid path: " + pointer);
+    int start = 1;
+    while (true) {
+      int end = pointer.indexOf('/', start);
+      String token = pointer.substring(start, end < 0 ? pointer.length() : end);
+      tokens.add(token.replace("~1", "/").replace("~0", "~"));
+      if (end < 0) return tokens;
+      start = end + 1;
+    }
+  }
+
+  /**
+   * Application of the patch to one document.
+   */
+  private static class Application {
+    private final boolean inPlace;
+    // the objects and arrays copied by this application, which can be modified
+    private final Set<JsonNode> copies = Collections.newSetFromMap(new IdentityHashMap<>());
+    private JsonNode root;
+
+    Application(JsonNode root, boolean inPlace) {
+      this.root = root;
+      this.inPlace = inPlace;
+    }
+
+    JsonNode apply(JsonArray operations) throws JsonPatchException {
+      for (JsonNode node : operations.getChildren()) {
+        if (!node.isJsonObject()) throw new JsonPatchException("Operation must be an object: " + node);
+        JsonObject operation = node.getAsJsonObject();
+        String op = getString(operation, "op");
+        List<String> path = parsePointer(getString(operation, "path"));
+        switch (op) {
+          case "add":
+            add(path, getValue(operation));
+            break;
+          case "remove":
+            remove(path);
+            break;
+          case "replace":
+            remove(path);
+            add(path, getValue(operation));
+            break;
+          case "move":
+            List<String> from = parsePointer(getString(operation, "from"));
+            if (path.size() > from.size() && path.subList(0, from.size()).equals(from)) {
+              throw new JsonPatchException("Cannot move a value into itself: " + operation);
+            }
+            add(path, remove(from));
+            break;
+          case "copy":
+            add(path, find(parsePointer(getString(operation, "from"))).deepCopy());
+            break;
+          case "test":
+            if (!find(path).equals(getValue(operation))) {
+              throw new JsonPatchException("Test failed: " + operation);
+            }
+            break;
+          default:
+            throw new JsonPatchException("Unknown operation: " + operation);
+        }
+      }
+      return root;
+    }
+
+    /**
+     * Adds the value to the object or inserts it to the array (replaces the document if the path is empty).
+     */
+    private void add(List<String> path, JsonNode value) throws JsonPatchException {
+      if (path.isEmpty()) {
+        root = value;
+        return;
+      }
+      JsonNode parent = container(path);
+      String token = path.get(path.size() - 1);
+      if (parent.isJsonObject()) {
+        parent.getAsJsonObject().add(token, value);
+      } else {
+        JsonArray array = parent.getAsJsonArray();
+        int size = array.getChildren().size();
+        array.add(token.equals("-") ? size : index(token, size + 1), value);
+      }
+    }
+
+    /**
+     * Removes the value and returns it.
+     */
+    private JsonNode remove(List<String> path) throws JsonPatchException {
+      if (path.isEmpty()) {
+        JsonNode removed = root;
+        root = null;
+        return removed;
+      }
+      JsonNode parent = container(path);
+      String token = path.get(path.size() - 1);
+      if (parent.isJsonObject()) {
+        JsonObject object = parent.getAsJsonObject();
+        if (!object.has(token)) throw new JsonPatchException("Path not found: " + path);
+        return object.remove(token);
+      }
+      JsonArray array = parent.getAsJsonArray();
+      return array.remove(index(token, array.getChildren().size()));
+    }
+
+    /**
+     * Finds the value at the path without copying anything.
+     */
+    private JsonNode find(List<String> path) throws JsonPatchException {
+      JsonNode node = root;
+      for (String token : path) {
+        node = child(node, token);
+        if (node == null) throw new JsonPatchException("Path not found: " + path);
+      }
+      return node;
+    }
+
+    /**
+     * Gets the object or array containing the last token of the path, all containers on the path
+     * are copied unless the patch is applied in place.
+     */
+    private JsonNode container(List<String> path) throws JsonPatchException {
+      if (root == null) throw new JsonPatchException("Path not found: " + path);
+      root = writable(root);
+      JsonNode node = root;
+      for (int i = 0; i < path.size(); i++) {
+        if (!node.isJsonObject() && !node.isJsonArray()) throw new JsonPatchException("Path not found: " + path);
+        if (i == path.size() - 1) return node;
+        JsonNode child = child(node, path.get(i));
+        if (child == null) throw new JsonPatchException("Path not found: " + path);
+        JsonNode copy = writable(child);
+        if (copy != child) {
+          if (node.isJsonObject()) node.getAsJsonObject().add(path.get(i), copy);
+          else node.getAsJsonArray().set(Integer.parseInt(path.get(i)), copy);
+        }
+        node = copy;
+      }
+      return node;
+    }
+
+    private JsonNode writable(JsonNode node) {
+      if (inPlace || copies.contains(node)) return node;
+      JsonNode copy;
+      if (node.isJsonObject()) copy = node.getAsJsonObject().shallowCopy();
+      else if (node.isJsonArray()) copy = node.getAsJsonArray().shallowCopy();
+      else return node;
+      copies.add(copy);
+      return copy;
+    }
+
+    private static JsonNode child(JsonNode node, String token) throws JsonPatchException {
+      if (node.isJsonObject()) return node.getAsJsonObject().get(token);
+      if (node.isJsonArray()) {
+        JsonArray array = node.getAsJsonArray();
+        return array.get(index(token, array.getChildren().size()));
+      }
+      return null;
+    }
+
+    /**
+     * Parses the array index, which must be less than the bound.
+     */
+    private static int index(String token, int bound) throws JsonPatchException {
+      boolean digits = !token.isEmpty() && token.length() <= 9 && (token.length() == 1 || token.charAt(0) != '0');
+      for (int i = 0; digits && i < token.length(); i++) digits = token.charAt(i) >= '0' && token.charAt(i) <= '9';
+      if (!digits || Integer.parseInt(token) >= bound) throw new JsonPatchException("Invalid array index: " + token);
+      return Integer.parseInt(token);
+    }
+
+    private static String getString(JsonObject operation, String member) throws JsonPatchException {
+      JsonNode value = operation.get(member);
+      if (value == null || !value.isJsonPrimitive() || !value.getAsJsonPrimitive().isString()) {
+        throw new JsonPatchException("Missing \"" + member + "\" of operation: " + operation);
+      }
+      return (String) value.getAsJsonPrimitive().getValue();
+    }
+
+    private JsonNode getValue(JsonObject operation) throws JsonPatchException {
+      if (!operation.has("value")) throw new JsonPatchException("Missing \"value\" of operation: " + operation);
+      // values added in place are copied, so that the later operations do not modify the patch
+      return inPlace ? operation.get("value").deepCopy() : operation.get("value");
+    }
+  }
+}
@@ -0,0 +1,18 @@
+/**
+ * Exception while applying a json patch, thrown when an operation is malformed, its path does
+ * not exist or a test operation fails.
+ *
+ * @see JsonPatch
+ */
+public class JsonPatchException extends Exception {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Instantiates a new Json patch exception.
+   *
+   * @param message the message
+   */
+  JsonPatchException(String message) {
+    super(message);
+  }
+}
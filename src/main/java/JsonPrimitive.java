@@ -1,11 +1,22 @@
 import java.math.BigInteger;
+import java.util.Objects;
 
 /**
- * The type Json primitive.
+ * The type Json primitive. Primitives created by the {@code of} factories (and by the parser)
+ * store numbers unboxed and share the instances of booleans and small integers, the values are
+ * available without boxing through {@link #getAsLong()}, {@link #getAsDouble()} and
+ * {@link #getAsBoolean()}. The json null is a primitive holding null.
  *
  * @param <T> the type parameter
  */
 public class JsonPrimitive<T> extends JsonNode {
+  private static final JsonPrimitive<Boolean> TRUE = new JsonPrimitive<>(true);
+  private static final JsonPrimitive<Boolean> FALSE = new JsonPrimitive<>(false);
+  private static final JsonPrimitive<Object> NULL = new JsonPrimitive<>(null);
+  private static final long DECIMAL_SEED = 0x3C6EF372FE94F82BL;
+  private static final long STRING_SEED = 0xA54FF53A5F1D36F1L;
+  private static final long OTHER_SEED = 0x510E527FADE682D1L;
+
   private final T value;
 
   /**
@@ -17,6 +28,55 @@ public class JsonPrimitive<T> extends JsonNode {
     this.value = value;
   }
 
+  /**
+   * Returns the primitive holding the integral number. Primitives of small numbers are shared.
+   *
+   * @param value the value
+   * @return the json primitive
+   */
+  public static JsonPrimitive<Long> of(long value) {
+    return JsonLongPrimitive.valueOf(value);
+  }
+
+  /**
+   * Returns the primitive holding the decimal number.
+   *
+   * @param value the value
+   * @return the json primitive
+   */
+  public static JsonPrimitive<Double> of(double value) {
+    return new JsonDoublePrimitive(value);
+  }
+
+  /**
+   * Returns the shared primitive holding the boolean.
+   *
+   * @param value the value
+   * @return the json primitive
+   */
+  public static JsonPrimitive<Boolean> of(boolean value) {
+    return value ? TRUE : FALSE;
+  }
+
+  /**
+   * Returns the primitive holding the string.
+   *
+   * @param value the value
+   * @return the json primitive
+   */
+  public static JsonPrimitive<String> of(String value) {
+    return new JsonPrimitive<>(value);
+  }
+
+  /**
+   * Returns the shared primitive of the json null.
+   *
+   * @return the json primitive
+   */
+  public static JsonPrimitive<Object> ofNull() {
+    return NULL;
+  }
+
   /**
    * @return true if the primitive is String
    */
@@ -38,6 +98,13 @@ public class JsonPrimitive<T> extends JsonNode {
     return value instanceof Boolean;
   }
 
+  /**
+   * @return true if the primitive is the json null
+   */
+  public boolean isNull() {
+    return value == null && !isNumber();
+  }
+
   @Override
   public boolean isJsonPrimitive() {
     return true;
@@ -77,34 +144,125 @@ public class JsonPrimitive<T> extends JsonNode {
     return value;
   }
 
-  @SuppressWarnings("unchecked")
+  /**
+   * @return the number value converted to long
+   * @throws ClassCastException if the primitive is not a number
+   */
+  public long getAsLong() {
+    return ((Number) getValue()).longValue();
+  }
+
+  /**
+   * @return the number value converted to double
+   * @throws ClassCastException if the primitive is not a number
+   */
+  public double getAsDouble() {
+    return ((Number) getValue()).doubleValue();
+  }
+
+  /**
+   * @return the boolean value
+   * @throws ClassCastException if the primitive is not a boolean
+   */
+  public boolean getAsBoolean() {
+    return (Boolean) getValue();
+  }
+
   @Override
   public boolean equals(Object obj) {
     if (!(obj instanceof JsonPrimitive)) return false;
-    JsonPrimitive objPrimitive = (JsonPrimitive) obj;
-    if (isIntegral(this) && isIntegral(objPrimitive)) {
-      return getValueAsNumber().longValue() == objPrimitive.getValueAsNumber().longValue();
+    JsonPrimitive<?> objPrimitive = (JsonPrimitive<?>) obj;
+    // the specialized primitives are compared without boxing their values
+    boolean integral = isIntegral(this), otherIntegral = isIntegral(objPrimitive);
+    if (integral && otherIntegral) {
+      return getAsLong() == objPrimitive.getAsLong();
     }
-    if (value instanceof Number && objPrimitive.value instanceof Number) {
-      double a = getValueAsNumber().doubleValue();
+    if (isNumber() && objPrimitive.isNumber()) {
+      // integral and decimal numbers are equal only if the decimal number is exactly the integral one
+      if (integral) return isExactly(objPrimitive.getAsDouble(), getAsLong());
+      if (otherIntegral) return isExactly(getAsDouble(), objPrimitive.getAsLong());
+      double a = getAsDouble();
       // Java standard types objPrimitive than double return true for two NaN. So, need
       // special handling for double.
-      double b = objPrimitive.getValueAsNumber().doubleValue();
+      double b = objPrimitive.getAsDouble();
       return a == b || (Double.isNaN(a) && Double.isNaN(b));
     }
-    return value.equals(objPrimitive.getValue());
+    if (isNumber() || objPrimitive.isNumber()) return false;
+    return Objects.equals(value, objPrimitive.value);
   }
 
-  private boolean isIntegral(JsonPrimitive<T> primitive) {
-    if (primitive.value instanceof Number) {
-      Number number = (Number) primitive.value;
-      return number instanceof BigInteger || number instanceof Long || number instanceof Integer
-              || number instanceof Short || number instanceof Byte;
-    }
-    return false;
+  @Override
+  public int hashCode() {
+    if (isNumber()) return hashNumber(getAsDouble());
+    return Objects.hashCode(getValue());
+  }
+
+  /**
+   * Hashes the number so that numbers equal as json primitives have equal hashes (zero equals
+   * negative zero).
+   *
+   * @param value the number
+   * @return the hash
+   */
+  static int hashNumber(double value) {
+    return value == 0 ? 0 : Double.hashCode(value);
+  }
+
+  @Override
+  long fingerprint() {
+    if (isNumber()) return isIntegral(this) ? fingerprintNumber(getAsLong()) : fingerprintNumber(getAsDouble());
+    if (isString()) return fingerprintString((String) value);
+    return mix(Objects.hashCode(value) ^ OTHER_SEED);
+  }
+
+  /**
+   * @param value the integral number
+   * @return the fingerprint of the number
+   */
+  static long fingerprintNumber(long value) {
+    return mix(value);
+  }
+
+  /**
+   * Gets the fingerprint of the decimal number, which is the fingerprint of the integral number
+   * if the decimal number is exactly one (zero equals negative zero).
+   *
+   * @param value the decimal number
+   * @return the fingerprint of the number
+   */
+  static long fingerprintNumber(double value) {
+    if (isIntegral(value)) return fingerprintNumber((long) value);
+    return mix(Double.doubleToLongBits(value) ^ DECIMAL_SEED);
+  }
+
+  /**
+   * Gets the 64-bit FNV-1a hash of the string.
+   *
+   * @param value the string
+   * @return the fingerprint of the string
+   */
+  static long fingerprintString(String value) {
+    long hash = 0xCBF29CE484222325L;
+    for (int i = 0; i < value.length(); i++) hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+    return mix(hash ^ STRING_SEED);
+  }
+
+  private static boolean isIntegral(JsonPrimitive<?> primitive) {
+    if (primitive instanceof JsonLongPrimitive) return true;
+    if (primitive instanceof JsonDoublePrimitive) return false;
+    Object number = primitive.value;
+    return number instanceof BigInteger || number instanceof Long || number instanceof Integer
+            || number instanceof Short || number instanceof Byte;
+  }
+
+  /**
+   * @return true if the decimal number is integral and fits into long
+   */
+  private static boolean isIntegral(double value) {
+    return value >= -0x1p63 && value < 0x1p63 && value == Math.rint(value);
   }
 
-  private Number getValueAsNumber() {
-    return (Number) value;
+  private static boolean isExactly(double decimal, long integral) {
+    return isIntegral(decimal) && (long) decimal == integral;
   }
 }
@@ -0,0 +1,958 @@
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Pull style json reader. The input is consumed token by token, so callers decide what to
+ * materialize. For example:<br>
+ * <pre>
+ * JsonReader reader = new JsonReader("{\"a\":[1,2],\"b\":\"str\"}");
+ * reader.beginObject();
+ * while (reader.hasNext()) {
+ *   if (reader.nextName().equals("b")) System.out.println(reader.nextString());
+ *   else reader.skipValue();
+ * }
+ * reader.endObject();
+ * </pre>
+ * The input is read through a fixed-size buffer, so the memory used by the reader does not depend
+ * on the size of the document. Byte inputs are read as UTF-8 without decoding them to characters,
+ * only string values are decoded when they are read. Subsequent top level values and empty input
+ * are allowed (the reader reports {@link JsonToken#END_DOCUMENT} only at the end of the input).
+ * Trailing commas in objects and arrays are accepted. I/O errors are rethrown as {@link UncheckedIOException}.
+ */
+public class JsonReader implements Closeable {
+  private static final int BUFFER_SIZE = 8192;
+  private static final char DECIMAL_POINT = '.';
+  private static final String TRUE_STR = "true";
+  private static final String FALSE_STR = "false";
+  private static final String NULL_STR = "null";
+
+  // scopes of the values being read
+  private static final int EMPTY_DOCUMENT = 0;
+  private static final int NONEMPTY_DOCUMENT = 1;
+  private static final int EMPTY_OBJECT = 2;
+  private static final int DANGLING_NAME = 3;
+  private static final int NONEMPTY_OBJECT = 4;
+  private static final int EMPTY_ARRAY = 5;
+  private static final int NONEMPTY_ARRAY = 6;
+
+  // kinds of the last read number
+  private static final int NUMBER_LONG = 0;
+  private static final int NUMBER_DOUBLE = 1;
+  private static final int NUMBER_BIG_INTEGER = 2;
+  // powers of ten exactly representable as double
+  private static final double[] POWERS_OF_TEN = {
+          1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+          1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  // the input is read either from a string, a byte buffer or the windows of a mapped file by
+  // absolute positions (so the reader can seek), sequentially from a reader or a stream, or in
+  // place from the bytes array
+  private String string;
+  private ByteBuffer byteBuffer;
+  private MappedFile file;
+  // the position of the first byte of the byte buffer in the input (the start of a mapped window)
+  private long byteBufferOffset;
+  private Reader reader;
+  private InputStream stream;
+  private char[] chars;
+  private byte[] bytes;
+  private final StringBuilder scratch = new StringBuilder();
+  private int pos;
+  private int limit;
+  // number of characters (or bytes) consumed before the current buffer content
+  private long bufferOffset;
+
+  private int[] stack = new int[32];
+  private int stackSize;
+  // the peeked token, null if it has not been peeked yet
+  private JsonToken peeked;
+  // value of the peeked boolean literal
+  private boolean peekedBoolean;
+  // position of the first character of the last peeked value
+  private long tokenStart;
+  // canonical strings of the keys and the string values, null if the strings are not deduplicated
+  private JsonSymbolTable keyTable;
+  private JsonSymbolTable valueTable;
+  // the last read number, big integers are kept as text in the scratch
+  private int numberKind;
+  private long numberLong;
+  private double numberDouble;
+  // whether the top level values are delimited by lines, line feeds are then not whitespace inside values
+  private boolean lineDelimited;
+  // the number of the current line, counted only when the values are delimited by lines
+  private long line = 1;
+
+  {
+    stack[stackSize++] = EMPTY_DOCUMENT;
+  }
+
+  /**
+   * Instantiates a new Json reader reading from the string.
+   *
+   * @param jsonString the json string to read
+   */
+  public JsonReader(String jsonString) {
+    this.string = jsonString;
+    // small inputs do not need the whole buffer
+    this.chars = new char[Math.max(1, Math.min(BUFFER_SIZE, jsonString.length()))];
+  }
+
+  /**
+   * Instantiates a new Json reader reading from the reader.
+   *
+   * @param reader the reader to read from
+   */
+  public JsonReader(Reader reader) {
+    this.reader = reader;
+    this.chars = new char[BUFFER_SIZE];
+  }
+
+  /**
+   * Instantiates a new Json reader reading the UTF-8 encoded bytes. The array is read in place.
+   *
+   * @param bytes the bytes to read
+   */
+  public JsonReader(byte[] bytes) {
+    this(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Instantiates a new Json reader reading the UTF-8 encoded bytes in the given range of the array.
+   * The array is read in place, positions reported by the reader are indices to the array.
+   *
+   * @param bytes  the bytes to read
+   * @param offset the index of the first byte
+   * @param length the number of bytes to read
+   */
+  public JsonReader(byte[] bytes, int offset, int length) {
+    if (offset < 0 || length < 0 || offset + length > bytes.length) throw new IndexOutOfBoundsException();
+    this.bytes = bytes;
+    this.pos = offset;
+    this.limit = offset + length;
+  }
+
+  /**
+   * Instantiates a new Json reader reading the remaining UTF-8 encoded bytes of the buffer. Heap
+   * buffers are read in place, direct buffers are copied in small chunks. Positions reported by
+   * the reader are indices to the buffer. The position of the buffer is not modified.
+   *
+   * @param buffer the buffer to read
+   */
+  public JsonReader(ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      this.bytes = buffer.array();
+      this.pos = buffer.arrayOffset() + buffer.position();
+      this.limit = buffer.arrayOffset() + buffer.limit();
+      this.bufferOffset = -buffer.arrayOffset();
+    } else {
+      this.byteBuffer = buffer.duplicate();
+      this.bytes = new byte[Math.max(1, Math.min(BUFFER_SIZE, buffer.remaining()))];
+      this.bufferOffset = buffer.position();
+    }
+  }
+
+  /**
+   * Instantiates a new Json reader reading the UTF-8 encoded input stream.
+   *
+   * @param inputStream the input stream to read from
+   */
+  public JsonReader(InputStream inputStream) {
+    this.stream = inputStream;
+    this.bytes = new byte[BUFFER_SIZE];
+  }
+
+  /**
+   * Instantiates a new Json reader reading the UTF-8 encoded channel.
+   *
+   * @param channel the channel to read from
+   */
+  public JsonReader(ReadableByteChannel channel) {
+    this(Channels.newInputStream(channel));
+  }
+
+  /**
+   * Instantiates a new Json reader reading the UTF-8 encoded file. The file is memory mapped
+   * (in windows, so it may be larger than 2 GB) and read the same way as a direct byte buffer,
+   * it is never loaded into the heap as a whole. Closing the reader closes the file, the mapped
+   * windows are released when they are garbage collected.
+   *
+   * @param path the path of the file to read
+   * @throws IOException if the file could not be opened
+   */
+  public JsonReader(Path path) throws IOException {
+    this(new MappedFile(path));
+  }
+
+  /**
+   * Instantiates a new Json reader reading the UTF-8 encoded mapped file. Closing the reader
+   * closes the file.
+   *
+   * @param file the file to read
+   */
+  JsonReader(MappedFile file) {
+    this.file = file;
+    // no window is mapped until the first read
+    this.byteBuffer = ByteBuffer.allocate(0);
+    this.bytes = new byte[(int) Math.max(1, Math.min(BUFFER_SIZE, file.size()))];
+  }
+
+  /**
+   * Returns the type of the next token without consuming it.
+   *
+   * @return the type of the next token
+   * @throws MalformedJsonException if the input is not a valid json
+   */
+  public JsonToken peek() throws MalformedJsonException {
+    if (peeked == null) peeked = doPeek();
+    return peeked;
+  }
+
+  /**
+   * Consumes the opening brace of a json object.
+   *
+   * @throws MalformedJsonException if the next token is not {@link JsonToken#BEGIN_OBJECT}
+   */
+  public void beginObject() throws MalformedJsonException {
+    expect(JsonToken.BEGIN_OBJECT);
+    push(EMPTY_OBJECT);
+  }
+
+  /**
+   * Consumes the closing brace of a json object.
+   *
+   * @throws MalformedJsonException if the next token is not {@link JsonToken#END_OBJECT}
+   */
+  public void endObject() throws MalformedJsonException {
+    expect(JsonToken.END_OBJECT);
+    stackSize--;
+  }
+
+  /**
+   * Consumes the opening bracket of a json array.
+   *
+   * @throws MalformedJsonException if the next token is not {@link JsonToken#BEGIN_ARRAY}
+   */
+  public void beginArray() throws MalformedJsonException {
+    expect(JsonToken.BEGIN_ARRAY);
+    push(EMPTY_ARRAY);
+  }
+
+  /**
+   * Consumes the closing bracket of a json array.
+   *
+   * @throws MalformedJsonException if the next token is not {@link JsonToken#END_ARRAY}
+   */
+  public void endArray() throws MalformedJsonException {
+    expect(JsonToken.END_ARRAY);
+    stackSize--;
+  }
+
+  /**
+   * Checks whether the current object or array has more elements.
+   *
+   * @return true if there is another element in the current object or array
+   * @throws MalformedJsonException if the input is not a valid json
+   */
+  public boolean hasNext() throws MalformedJsonException {
+    JsonToken token = peek();
+    return token != JsonToken.END_OBJECT && token != JsonToken.END_ARRAY && token != JsonToken.END_DOCUMENT;
+  }
+
+  /**
+   * Consumes the key of the next object member.
+   *
+   * @return the key
+   * @throws MalformedJsonException if the next token is not {@link JsonToken#NAME}
+   */
+  public String nextName() throws MalformedJsonException {
+    expect(JsonToken.NAME);
+    return readString(keyTable);
+  }
+
+  /**
+   * Consumes the next string value.
+   *
+   * @return the string value
+   * @throws MalformedJsonException if the next token is not {@link JsonToken#STRING}
+   */
+  public String nextString() throws MalformedJsonException {
+    expect(JsonToken.STRING);
+    return readString(valueTable);
+  }
+
+  /**
+   * Consumes the next boolean value.
+   *
+   * @return the boolean value
+   * @throws MalformedJsonException if the next token is not {@link JsonToken#BOOLEAN}
+   */
+  public boolean nextBoolean() throws MalformedJsonException {
+    expect(JsonToken.BOOLEAN);
+    return peekedBoolean;
+  }
+
+  /**
+   * Consumes the next null literal.
+   *
+   * @throws MalformedJsonException if the next token is not {@link JsonToken#NULL}
+   */
+  public void nextNull() throws MalformedJsonException {
+    expect(JsonToken.NULL);
+  }
+
+  /**
+   * Consumes the next number value. Integral numbers are returned as Integer, Long or BigInteger
+   * (the first one able to hold them), decimal numbers are converted to double.
+   *
+   * @return the number value
+   * @throws MalformedJsonException if the next token is not {@link JsonToken#NUMBER}
+   */
+  public Number nextNumber() throws MalformedJsonException {
+    expect(JsonToken.NUMBER);
+    readNumber(false);
+    if (numberKind == NUMBER_DOUBLE) return numberDouble;
+    if (numberKind == NUMBER_LONG) {
+      if (numberLong == (int) numberLong) return (int) numberLong;
+      return numberLong;
+    }
+    BigInteger integer = new BigInteger(scratch.toString());
+    if (integer.bitLength() < Long.SIZE) return integer.longValue();
+    return integer;
+  }
+
+  /**
+   * Consumes the next number value as a json primitive. Integral numbers fitting into long and
+   * decimal numbers are stored unboxed.
+   *
+   * @return the json primitive
+   * @throws MalformedJsonException if the next token is not {@link JsonToken#NUMBER}
+   */
+  JsonPrimitive<?> nextNumberPrimitive() throws MalformedJsonException {
+    expect(JsonToken.NUMBER);
+    readNumber(false);
+    if (numberKind == NUMBER_LONG) return JsonPrimitive.of(numberLong);
+    if (numberKind == NUMBER_DOUBLE) return JsonPrimitive.of(numberDouble);
+    BigInteger integer = new BigInteger(scratch.toString());
+    if (integer.bitLength() < Long.SIZE) return JsonPrimitive.of(integer.longValue());
+    return new JsonPrimitive<>(integer);
+  }
+
+  /**
+   * Consumes the next number value as long.
+   *
+   * @return the long value
+   * @throws MalformedJsonException if the next token is not {@link JsonToken#NUMBER}
+   * @throws NumberFormatException  if the number is not integral or does not fit into long
+   */
+  public long nextLong() throws MalformedJsonException {
+    expect(JsonToken.NUMBER);
+    readNumber(false);
+    if (numberKind == NUMBER_LONG) return numberLong;
+    if (numberKind == NUMBER_BIG_INTEGER) {
+      BigInteger integer = new BigInteger(scratch.toString());
+      if (integer.bitLength() < Long.SIZE) return integer.longValue();
+    }
+    throw new NumberFormatException("Expected long but was " + scratch);
+  }
+
+  /**
+   * Consumes the next number value as double.
+   *
+   * @return the double value
+   * @throws MalformedJsonException if the next token is not {@link JsonToken#NUMBER}
+   */
+  public double nextDouble() throws MalformedJsonException {
+    expect(JsonToken.NUMBER);
+    readNumber(false);
+    if (numberKind == NUMBER_DOUBLE) return numberDouble;
+    if (numberKind == NUMBER_LONG) return numberLong;
+    return Double.parseDouble(scratch.toString());
+  }
+
+  /**
+   * Skips the next value. Objects and arrays are skipped together with all their
+   * children without materializing them.
+   *
+   * @throws MalformedJsonException if the input is not a valid json
+   */
+  public void skipValue() throws MalformedJsonException {
+    int depth = 0;
+    do {
+      switch (peek()) {
+        case BEGIN_OBJECT:
+          beginObject();
+          depth++;
+          break;
+        case BEGIN_ARRAY:
+          beginArray();
+          depth++;
+          break;
+        case END_OBJECT:
+          endObject();
+          depth--;
+          break;
+        case END_ARRAY:
+          endArray();
+          depth--;
+          break;
+        case NAME:
+        case STRING:
+          peeked = null;
+          skipString();
+          break;
+        case NUMBER:
+          peeked = null;
+          readNumber(true);
+          break;
+        case END_DOCUMENT:
+          throw unexpected();
+        default:
+          peeked = null;
+      }
+    } while (depth > 0);
+  }
+
+  /**
+   * Sets the table used to deduplicate the keys of objects. Repeated keys are then returned as
+   * the same string instance, without allocating when the key is in the table already.
+   *
+   * @param keyTable the symbol table, null to create a new string for every key
+   */
+  public void setKeyTable(JsonSymbolTable keyTable) {
+    this.keyTable = keyTable;
+  }
+
+  /**
+   * Sets the table used to deduplicate the string values. Useful for values of low cardinality,
+   * the keys should use a different table.
+   *
+   * @param valueTable the symbol table, null to create a new string for every value
+   * @see #setKeyTable(JsonSymbolTable)
+   */
+  public void setValueTable(JsonSymbolTable valueTable) {
+    this.valueTable = valueTable;
+  }
+
+  /**
+   * Gets the position of the reader in the input (number of consumed characters, or bytes
+   * for byte inputs).
+   *
+   * @return the position
+   */
+  public long getPosition() {
+    return bufferOffset + pos;
+  }
+
+  /**
+   * Makes the reader read one top level value per line. Line feeds are then allowed only between
+   * the top level values, where they are counted, and blank lines are skipped.
+   *
+   * @see JsonLinesReader
+   */
+  void setLineDelimited() {
+    this.lineDelimited = true;
+  }
+
+  /**
+   * @return the number of the current line, counting from 1
+   */
+  long getLine() {
+    return line;
+  }
+
+  /**
+   * Consumes the end of the line after a top level value.
+   *
+   * @throws MalformedJsonException if there is anything but whitespace before the end of the line
+   */
+  void endLine() throws MalformedJsonException {
+    int c = nextNonWhitespace();
+    if (c != '\n' && c != -1) {
+      throw new MalformedJsonException("Unexpected data after the value at pos: " + getPosition());
+    }
+    if (c == '\n') {
+      pos++;
+      line++;
+    }
+    stack[stackSize - 1] = EMPTY_DOCUMENT;
+  }
+
+  /**
+   * Skips the rest of the line (after a malformed value) and resets the reader to the state of a
+   * new reader at the start of the next line.
+   */
+  void skipLine() {
+    int c;
+    while ((c = peekChar()) != -1) {
+      pos++;
+      if (c == '\n') {
+        line++;
+        break;
+      }
+    }
+    stackSize = 0;
+    stack[stackSize++] = EMPTY_DOCUMENT;
+    peeked = null;
+  }
+
+  /**
+   * Gets the position of the first character of the peeked value.
+   *
+   * @return the position
+   */
+  long getTokenStart() {
+    return tokenStart;
+  }
+
+  /**
+   * Moves the reader to the given position and resets it to the state of a new reader, so the
+   * value starting at the position can be read. Only strings, byte arrays, byte buffers and
+   * mapped files can be read repeatedly.
+   *
+   * @param position the position obtained from this reader
+   */
+  void seek(long position) {
+    if (string != null || byteBuffer != null) {
+      bufferOffset = position;
+      pos = 0;
+      limit = 0;
+    } else if (isInPlace()) {
+      pos = (int) (position - bufferOffset);
+    } else {
+      throw new UnsupportedOperationException("Sequential input can not be read repeatedly");
+    }
+    stackSize = 0;
+    stack[stackSize++] = EMPTY_DOCUMENT;
+    peeked = null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (reader != null) reader.close();
+    if (stream != null) stream.close();
+    if (file != null) file.close();
+  }
+
+  private void expect(JsonToken token) throws MalformedJsonException {
+    if (peek() != token) {
+      throw new MalformedJsonException("Expected " + token + " but was " + peeked + " at pos: " + getPosition());
+    }
+    peeked = null;
+  }
+
+  private void push(int scope) {
+    if (stackSize == stack.length) {
+      int[] newStack = new int[stackSize * 2];
+      System.arraycopy(stack, 0, newStack, 0, stackSize);
+      stack = newStack;
+    }
+    stack[stackSize++] = scope;
+  }
+
+  private JsonToken doPeek() throws MalformedJsonException {
+    int scope = stack[stackSize - 1];
+    int c = nextNonWhitespace();
+    switch (scope) {
+      case EMPTY_ARRAY:
+      case NONEMPTY_ARRAY:
+        if (c == ']') {
+          pos++;
+          return JsonToken.END_ARRAY;
+        }
+        if (scope == NONEMPTY_ARRAY) {
+          if (c != ',') throw unexpected();
+          pos++;
+          // trailing comma
+          if ((c = nextNonWhitespace()) == ']') {
+            pos++;
+            return JsonToken.END_ARRAY;
+          }
+        }
+        stack[stackSize - 1] = NONEMPTY_ARRAY;
+        return peekValue(c);
+      case EMPTY_OBJECT:
+      case NONEMPTY_OBJECT:
+        if (c == '}') {
+          pos++;
+          return JsonToken.END_OBJECT;
+        }
+        if (scope == NONEMPTY_OBJECT) {
+          if (c != ',') throw unexpected();
+          pos++;
+          // trailing comma
+          if ((c = nextNonWhitespace()) == '}') {
+            pos++;
+            return JsonToken.END_OBJECT;
+          }
+        }
+        if (c != '"') throw unexpected();
+        pos++;
+        stack[stackSize - 1] = DANGLING_NAME;
+        return JsonToken.NAME;
+      case DANGLING_NAME:
+        if (c != ':') throw unexpected();
+        pos++;
+        stack[stackSize - 1] = NONEMPTY_OBJECT;
+        return peekValue(nextNonWhitespace());
+      default:
+        // blank lines between the values
+        while (c == '\n') {
+          pos++;
+          line++;
+          c = nextNonWhitespace();
+        }
+        // empty input is a document without values
+        if (c == -1) return JsonToken.END_DOCUMENT;
+        stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+        return peekValue(c);
+    }
+  }
+
+  private JsonToken peekValue(int c) throws MalformedJsonException {
+    tokenStart = getPosition();
+    switch (c) {
+      case '{':
+        pos++;
+        return JsonToken.BEGIN_OBJECT;
+      case '[':
+        pos++;
+        return JsonToken.BEGIN_ARRAY;
+      case '"':
+        pos++;
+        return JsonToken.STRING;
+      case 't':
+        consumeLiteral(TRUE_STR);
+        peekedBoolean = true;
+        return JsonToken.BOOLEAN;
+      case 'f':
+        consumeLiteral(FALSE_STR);
+        peekedBoolean = false;
+        return JsonToken.BOOLEAN;
+      case 'n':
+        consumeLiteral(NULL_STR);
+        return JsonToken.NULL;
+      default:
+        if (isDigit(c) || c == DECIMAL_POINT || c == '-') return JsonToken.NUMBER;
+        throw unexpected();
+    }
+  }
+
+  /**
+   * Returns the current character without consuming it, refilling the buffer if needed.
+   *
+   * @return the current character or -1 at the end of the input
+   */
+  private int peekChar() {
+    if (pos == limit && !fill()) return -1;
+    return charAt(pos);
+  }
+
+  /**
+   * @return the character (or byte) of the buffer at the given position
+   */
+  private int charAt(int pos) {
+    return bytes != null ? bytes[pos] & 0xFF : chars[pos];
+  }
+
+  /**
+   * Same as {@link JsonReader#peekChar()}, but the end of the input is an error.
+   */
+  private char nextChar() throws MalformedJsonException {
+    int c = peekChar();
+    if (c == -1) throw unexpected();
+    return (char) c;
+  }
+
+  private boolean fill() {
+    if (isInPlace()) return false;
+    bufferOffset += limit;
+    pos = 0;
+    limit = 0;
+    int read;
+    if (string != null) {
+      read = (int) Math.min(chars.length, string.length() - bufferOffset);
+      if (read <= 0) return false;
+      string.getChars((int) bufferOffset, (int) bufferOffset + read, chars, 0);
+    } else if (byteBuffer != null) {
+      if (file != null && (bufferOffset < byteBufferOffset || bufferOffset - byteBufferOffset >= byteBuffer.limit())) {
+        if (bufferOffset >= file.size()) return false;
+        // a value crossing the end of the window continues in the next one
+        try {
+          byteBuffer = file.window(bufferOffset);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        byteBufferOffset = file.windowStart(bufferOffset);
+      }
+      read = (int) Math.min(bytes.length, byteBuffer.limit() - (bufferOffset - byteBufferOffset));
+      if (read <= 0) return false;
+      byteBuffer.position((int) (bufferOffset - byteBufferOffset));
+      byteBuffer.get(bytes, 0, read);
+    } else {
+      try {
+        do {
+          read = reader != null ? reader.read(chars, 0, chars.length) : stream.read(bytes, 0, bytes.length);
+        } while (read == 0);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      if (read == -1) return false;
+    }
+    limit = read;
+    return true;
+  }
+
+  private boolean isInPlace() {
+    return string == null && byteBuffer == null && reader == null && stream == null;
+  }
+
+  /**
+   * Skips insignificant whitespace (as defined by RFC 8259).
+   *
+   * @return the first non-whitespace character (not consumed) or -1 at the end of the input
+   */
+  private int nextNonWhitespace() {
+    while (true) {
+      while (pos < limit) {
+        int c = charAt(pos);
+        if (c == '\n') {
+          if (lineDelimited) return c;
+        } else if (c != ' ' && c != '\r' && c != '\t') {
+          return c;
+        }
+        pos++;
+      }
+      if (!fill()) return -1;
+    }
+  }
+
+  private void consumeLiteral(String literal) throws MalformedJsonException {
+    for (int i = 0; i < literal.length(); i++) {
+      if (peekChar() != literal.charAt(i)) throw unexpected();
+      pos++;
+    }
+  }
+
+  private static boolean isDigit(int c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private MalformedJsonException unexpected() {
+    long position = getPosition();
+    int c = peekChar();
+    if (c == -1) return new MalformedJsonException("Unexpected end of input at pos: " + position);
+    if (c == '\n' && lineDelimited) return new MalformedJsonException("Unexpected end of line at pos: " + position);
+    return new MalformedJsonException("Unexpected character '" + (char) c + "' at pos: " + position);
+  }
+
+  /**
+   * Reads the number to {@link #numberKind} and the value fields. The digits are accumulated in
+   * long. Decimal numbers are converted directly when both the significand and the power of ten
+   * are exact doubles (a single multiplication or division is then correctly rounded), otherwise
+   * by {@link EiselLemire}. Only the numbers it can not decide (very close to the halfway between
+   * two doubles, subnormal or out of range) are converted from their text kept in the scratch.
+   *
+   * @param skip true if the number is only validated (the text is not kept)
+   */
+  private void readNumber(boolean skip) throws MalformedJsonException {
+    scratch.setLength(0);
+    long significand = 0;
+    // the number is a significand * 10^exponent
+    int exponent = 0;
+    int digits = 0;
+    // the integral digits not fitting into the significand
+    int droppedDigits = 0;
+    boolean overflow = false;
+    boolean decimal = false;
+    int c = peekChar();
+    boolean negative = c == '-';
+    if (negative) consumeNumberChar(c, skip);
+    while (isDigit(c = peekChar())) {
+      int digit = c - '0';
+      if (!overflow && significand <= (Long.MAX_VALUE - digit) / 10) {
+        significand = significand * 10 + digit;
+      } else {
+        overflow = true;
+        droppedDigits++;
+      }
+      digits++;
+      consumeNumberChar(c, skip);
+    }
+    if (c == DECIMAL_POINT) {
+      decimal = true;
+      consumeNumberChar(c, skip);
+      while (isDigit(c = peekChar())) {
+        int digit = c - '0';
+        if (!overflow && significand <= (Long.MAX_VALUE - digit) / 10) {
+          significand = significand * 10 + digit;
+          exponent--;
+        } else {
+          overflow = true;
+        }
+        digits++;
+        consumeNumberChar(c, skip);
+      }
+      if (c == DECIMAL_POINT) throw unexpected();
+    }
+    // a lone sign or decimal point is not a number
+    if (digits == 0) throw unexpected();
+    if (c == 'e' || c == 'E') {
+      decimal = true;
+      consumeNumberChar(c, skip);
+      c = peekChar();
+      boolean negativeExponent = c == '-';
+      if (c == '-' || c == '+') {
+        consumeNumberChar(c, skip);
+        c = peekChar();
+      }
+      if (!isDigit(c)) throw unexpected();
+      int explicitExponent = 0;
+      while (isDigit(c = peekChar())) {
+        // huge exponents are converted from the text anyway
+        if (explicitExponent < 100000) explicitExponent = explicitExponent * 10 + c - '0';
+        consumeNumberChar(c, skip);
+      }
+      exponent += negativeExponent ? -explicitExponent : explicitExponent;
+    }
+    if (skip) return;
+
+    if (!decimal) {
+      numberKind = overflow ? NUMBER_BIG_INTEGER : NUMBER_LONG;
+      numberLong = negative ? -significand : significand;
+    } else if (!overflow && significand < 1L << 53 && exponent >= -22 && exponent <= 22) {
+      double value = exponent < 0 ? significand / POWERS_OF_TEN[-exponent] : significand * POWERS_OF_TEN[exponent];
+      numberKind = NUMBER_DOUBLE;
+      numberDouble = negative ? -value : value;
+    } else {
+      exponent += droppedDigits;
+      double value = EiselLemire.toDouble(significand, exponent, negative);
+      // the dropped digits lie between the truncated significand and the next one
+      if (overflow && value != EiselLemire.toDouble(significand + 1, exponent, negative)) value = Double.NaN;
+      numberKind = NUMBER_DOUBLE;
+      numberDouble = Double.isNaN(value) ? Double.parseDouble(scratch.toString()) : value;
+    }
+  }
+
+  private void consumeNumberChar(int c, boolean skip) {
+    if (!skip) scratch.append((char) c);
+    pos++;
+  }
+
+  /**
+   * Reads the rest of the string after the opening quote. Escape sequences defined by RFC 8259
+   * are decoded, other escaped characters are taken literally. Strings taken directly from the
+   * buffer are deduplicated by the table (if not null).
+   */
+  private String readString(JsonSymbolTable table) throws MalformedJsonException {
+    // fast path: strings without escapes which are fully buffered are taken directly from the buffer
+    int start = pos;
+    while (pos < limit) {
+      int c = charAt(pos);
+      if (c == '"') {
+        String value;
+        if (table != null) {
+          value = bytes != null ? table.get(bytes, start, pos - start) : table.get(chars, start, pos - start);
+        } else {
+          value = bytes != null
+                  ? new String(bytes, start, pos - start, StandardCharsets.UTF_8)
+                  : new String(chars, start, pos - start);
+        }
+        pos++;
+        return value;
+      }
+      if (c == '\\' || c == '\n') break;
+      pos++;
+    }
+    scratch.setLength(0);
+    // a multi-byte character may be split by the end of the buffer, so bytes are decoded again one by one
+    if (bytes != null) pos = start;
+    else scratch.append(chars, start, pos - start);
+    int c;
+    while ((c = nextChar()) != '"') {
+      if (c == '\n' && lineDelimited) throw unexpected();
+      pos++;
+      if (c == '\\') scratch.append(readEscaped());
+      else if (c >= 0x80 && bytes != null) scratch.appendCodePoint(readUtf8(c));
+      else scratch.append((char) c);
+    }
+    pos++;
+    return scratch.toString();
+  }
+
+  private char readEscaped() throws MalformedJsonException {
+    char c = nextChar();
+    pos++;
+    switch (c) {
+      case 'b':
+        return '\b';
+      case 'f':
+        return '\f';
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 't':
+        return '\t';
+      case 'u':
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+          int digit = Character.digit(nextChar(), 16);
+          if (digit == -1) throw unexpected();
+          value = (value << 4) | digit;
+          pos++;
+        }
+        return (char) value;
+      default:
+        return c;
+    }
+  }
+
+  /**
+   * Decodes the rest of the UTF-8 sequence which starts with the lead byte.
+   * Malformed sequences are replaced by U+FFFD (as String does).
+   *
+   * @param lead the first byte of the sequence (already consumed)
+   * @return the decoded code point
+   */
+  private int readUtf8(int lead) {
+    int count;
+    int codePoint;
+    if (lead >= 0xF8) {
+      return 0xFFFD;
+    } else if (lead >= 0xF0) {
+      count = 3;
+      codePoint = lead & 0x07;
+    } else if (lead >= 0xE0) {
+      count = 2;
+      codePoint = lead & 0x0F;
+    } else if (lead >= 0xC0) {
+      count = 1;
+      codePoint = lead & 0x1F;
+    } else {
+      return 0xFFFD;
+    }
+    for (int i = 0; i < count; i++) {
+      int c = peekChar();
+      if ((c & 0xC0) != 0x80) return 0xFFFD;
+      codePoint = (codePoint << 6) | (c & 0x3F);
+      pos++;
+    }
+    return Character.isValidCodePoint(codePoint) ? codePoint : 0xFFFD;
+  }
+
+  private void skipString() throws MalformedJsonException {
+    char c;
+    while ((c = nextChar()) != '"') {
+      if (c == '\n' && lineDelimited) throw unexpected();
+      pos++;
+      if (c == '\\') readEscaped();
+    }
+    pos++;
+  }
+}
@@ -0,0 +1,109 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bounded table of canonical strings, used by {@link JsonReader} to deduplicate the keys (or the
+ * string values) of the parsed json. Strings are looked up by their characters (or UTF-8 bytes)
+ * in the input buffer, so nothing is allocated for a string which is already in the table. For
+ * example:<br>
+ * <pre>
+ * JsonReader reader = new JsonReader(inputStream);
+ * reader.setKeyTable(new JsonSymbolTable());
+ * JsonNode tree = JsonParser.parse(reader);
+ * </pre>
+ * The table is direct mapped: a string replaces the string stored in the same slot, so the table
+ * never holds more strings than its capacity. Strings longer than 64 characters are not stored.
+ * The table may be reused by subsequent readers, but not by concurrent ones.
+ */
+public class JsonSymbolTable {
+  private static final int DEFAULT_CAPACITY = 1024;
+  private static final int MAX_CAPACITY = 1 << 30;
+  private static final int MAX_LENGTH = 64;
+
+  private final String[] strings;
+  // UTF-8 encoding of the strings read from bytes, null for strings read from characters
+  private final byte[][] encoded;
+  private final int[] hashes;
+  private final int mask;
+
+  /**
+   * Instantiates a new symbol table of 1024 strings.
+   */
+  public JsonSymbolTable() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Instantiates a new symbol table.
+   *
+   * @param capacity the maximal number of strings (rounded up to a power of two)
+   */
+  public JsonSymbolTable(int capacity) {
+    if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    int size = Integer.highestOneBit(Math.min(capacity, MAX_CAPACITY));
+    if (size < capacity && size < MAX_CAPACITY) size <<= 1;
+    strings = new String[size];
+    encoded = new byte[size][];
+    hashes = new int[size];
+    mask = size - 1;
+  }
+
+  /**
+   * Returns the canonical string of the UTF-8 encoded bytes.
+   *
+   * @param bytes  the buffer
+   * @param offset the index of the first byte of the string
+   * @param length the number of bytes
+   * @return the string
+   */
+  String get(byte[] bytes, int offset, int length) {
+    if (length > MAX_LENGTH) return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    int hash = 0;
+    for (int i = offset; i < offset + length; i++) hash = 31 * hash + (bytes[i] & 0xFF);
+    int slot = slot(hash);
+    byte[] candidate = encoded[slot];
+    if (candidate != null && hashes[slot] == hash && candidate.length == length) {
+      int i = 0;
+      while (i < length && candidate[i] == bytes[offset + i]) i++;
+      if (i == length) return strings[slot];
+    }
+    String value = new String(bytes, offset, length, StandardCharsets.UTF_8);
+    byte[] copy = new byte[length];
+    System.arraycopy(bytes, offset, copy, 0, length);
+    store(slot, hash, value, copy);
+    return value;
+  }
+
+  /**
+   * Returns the canonical string of the characters.
+   *
+   * @param chars  the buffer
+   * @param offset the index of the first character of the string
+   * @param length the number of characters
+   * @return the string
+   */
+  String get(char[] chars, int offset, int length) {
+    if (length > MAX_LENGTH) return new String(chars, offset, length);
+    int hash = 0;
+    for (int i = offset; i < offset + length; i++) hash = 31 * hash + chars[i];
+    int slot = slot(hash);
+    String candidate = strings[slot];
+    if (candidate != null && hashes[slot] == hash && candidate.length() == length) {
+      int i = 0;
+      while (i < length && candidate.charAt(i) == chars[offset + i]) i++;
+      if (i == length) return candidate;
+    }
+    String value = new String(chars, offset, length);
+    store(slot, hash, value, null);
+    return value;
+  }
+
+  private int slot(int hash) {
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  private void store(int slot, int hash, String value, byte[] utf8) {
+    strings[slot] = value;
+    encoded[slot] = utf8;
+    hashes[slot] = hash;
+  }
+}
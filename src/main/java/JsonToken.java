@@ -0,0 +1,45 @@
+/**
+ * The type of the next token in the input of a {@link JsonReader}.
+ */
+public enum JsonToken {
+  /**
+   * The opening brace of a json object.
+   */
+  BEGIN_OBJECT,
+  /**
+   * The closing brace of a json object.
+   */
+  END_OBJECT,
+  /**
+   * The opening bracket of a json array.
+   */
+  BEGIN_ARRAY,
+  /**
+   * The closing bracket of a json array.
+   */
+  END_ARRAY,
+  /**
+   * The key of a json object member.
+   */
+  NAME,
+  /**
+   * The string value.
+   */
+  STRING,
+  /**
+   * The number value.
+   */
+  NUMBER,
+  /**
+   * The boolean value.
+   */
+  BOOLEAN,
+  /**
+   * The json null literal.
+   */
+  NULL,
+  /**
+   * The end of the input.
+   */
+  END_DOCUMENT
+}
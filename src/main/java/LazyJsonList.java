@@ -0,0 +1,126 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Children of a lazily parsed json array. The positions of the elements are indexed when the
+ * array is accessed for the first time, each element is parsed when it is accessed for the
+ * first time and then cached. Nested objects and arrays are lazy as well.
+ *
+ * @see JsonParser#parseLazy(String)
+ */
+class LazyJsonList extends AbstractList<JsonNode> implements RandomAccess {
+  private final JsonReader reader;
+  private final long start;
+  // the json array the parsed values are attached to
+  private JsonContainer container;
+  private boolean indexed = false;
+  // positions of the elements in the input, -1 for elements added after parsing
+  private long[] positions;
+  private JsonNode[] values;
+  private int size;
+
+  /**
+   * Instantiates a new lazy json list.
+   *
+   * @param reader the reader of the whole document
+   * @param start  the position of the array in the input
+   */
+  LazyJsonList(JsonReader reader, long start) {
+    this.reader = reader;
+    this.start = start;
+  }
+
+  /**
+   * Sets the json array backed by this list, the values parsed later become its children.
+   *
+   * @param container the json array
+   */
+  void attachTo(JsonContainer container) {
+    this.container = container;
+  }
+
+  /**
+   * Reads the positions of the elements of the array. The elements are skipped.
+   *
+   * @throws MalformedJsonException if the array is not a valid json
+   */
+  void index() throws MalformedJsonException {
+    indexed = true;
+    positions = new long[8];
+    reader.seek(start);
+    reader.beginArray();
+    while (reader.hasNext()) {
+      if (size == positions.length) positions = Arrays.copyOf(positions, size * 2);
+      positions[size++] = reader.getTokenStart();
+      reader.skipValue();
+    }
+    reader.endArray();
+    values = new JsonNode[positions.length];
+  }
+
+  private void ensureIndexed() {
+    if (indexed) return;
+    try {
+      index();
+    } catch (MalformedJsonException e) {
+      // the whole document has been validated when it was parsed
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public JsonNode get(int index) {
+    ensureIndexed();
+    if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    if (values[index] == null) {
+      try {
+        values[index] = JsonParser.parseLazy(reader, positions[index]);
+        container.attach(values[index]);
+      } catch (MalformedJsonException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return values[index];
+  }
+
+  @Override
+  public JsonNode set(int index, JsonNode element) {
+    JsonNode previous = get(index);
+    values[index] = element;
+    return previous;
+  }
+
+  @Override
+  public void add(int index, JsonNode element) {
+    ensureIndexed();
+    if (index < 0 || index > size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    if (size == positions.length) {
+      positions = Arrays.copyOf(positions, Math.max(8, size * 2));
+      values = Arrays.copyOf(values, positions.length);
+    }
+    System.arraycopy(positions, index, positions, index + 1, size - index);
+    System.arraycopy(values, index, values, index + 1, size - index);
+    positions[index] = -1;
+    values[index] = element;
+    size++;
+    modCount++;
+  }
+
+  @Override
+  public JsonNode remove(int index) {
+    JsonNode previous = get(index);
+    System.arraycopy(positions, index + 1, positions, index, size - index - 1);
+    System.arraycopy(values, index + 1, values, index, size - index - 1);
+    size--;
+    values[size] = null;
+    modCount++;
+    return previous;
+  }
+
+  @Override
+  public int size() {
+    ensureIndexed();
+    return size;
+  }
+}
@@ -0,0 +1,327 @@
+import java.util.*;
+
+/**
+ * Children of a lazily parsed json object. The keys and the positions of the values are indexed
+ * when the object is accessed for the first time, each value is parsed when it is accessed for
+ * the first time and then cached. Nested objects and arrays are lazy as well.
+ *
+ * @see JsonParser#parseLazy(String)
+ */
+class LazyJsonMap extends AbstractMap<String, JsonNode> {
+  // objects with more keys use the hash table instead of a linear scan
+  private static final int LINEAR_SCAN_LIMIT = 8;
+
+  // the position of the values not read from the input
+  private static final long MATERIALIZED = -1;
+
+  private final JsonReader reader;
+  private final long start;
+  // the json object the parsed values are attached to
+  private JsonContainer container;
+  private boolean indexed = false;
+  // the slots of removed keys hold null keys
+  private String[] keys;
+  // positions of the values in the input, MATERIALIZED for values set after parsing
+  private long[] positions;
+  private JsonNode[] values;
+  private int size;
+  // the number of slots used, including the slots of removed keys
+  private int used;
+  // slot + 1 of the key in each bucket (0 for empty buckets), linear probing, at most half full
+  private int[] table;
+
+  /**
+   * Instantiates a new lazy json map.
+   *
+   * @param reader the reader of the whole document
+   * @param start  the position of the object in the input
+   */
+  LazyJsonMap(JsonReader reader, long start) {
+    this.reader = reader;
+    this.start = start;
+  }
+
+  /**
+   * Sets the json object backed by this map, the values parsed later become its children.
+   *
+   * @param container the json object
+   */
+  void attachTo(JsonContainer container) {
+    this.container = container;
+  }
+
+  /**
+   * Reads the keys and positions of the values of the object. The values are skipped.
+   *
+   * @throws MalformedJsonException if the object is not a valid json
+   */
+  void index() throws MalformedJsonException {
+    indexed = true;
+    keys = new String[LINEAR_SCAN_LIMIT];
+    positions = new long[LINEAR_SCAN_LIMIT];
+    reader.seek(start);
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String key = reader.nextName();
+      reader.peek();
+      long position = reader.getTokenStart();
+      reader.skipValue();
+      int slot = slotOf(key);
+      // the last duplicate key wins (as when parsing eagerly)
+      if (slot >= 0) positions[slot] = position;
+      else append(key, position);
+    }
+    reader.endObject();
+    values = new JsonNode[keys.length];
+  }
+
+  private void ensureIndexed() {
+    if (indexed) return;
+    try {
+      index();
+    } catch (MalformedJsonException e) {
+      // the whole document has been validated when it was parsed
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private JsonNode valueAt(int slot) {
+    if (positions[slot] != MATERIALIZED) {
+      try {
+        values[slot] = JsonParser.parseLazy(reader, positions[slot]);
+        container.attach(values[slot]);
+      } catch (MalformedJsonException e) {
+        throw new IllegalStateException(e);
+      }
+      positions[slot] = MATERIALIZED;
+    }
+    return values[slot];
+  }
+
+  private void setValueAt(int slot, JsonNode value) {
+    values[slot] = value;
+    positions[slot] = MATERIALIZED;
+  }
+
+  private static int bucketOf(Object key, int mask) {
+    int hash = key.hashCode();
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  private int slotOf(Object key) {
+    if (key == null) return -1;
+    if (table == null) {
+      for (int i = 0; i < used; i++) {
+        if (key.equals(keys[i])) return i;
+      }
+      return -1;
+    }
+    int mask = table.length - 1;
+    for (int bucket = bucketOf(key, mask); table[bucket] != 0; bucket = (bucket + 1) & mask) {
+      int slot = table[bucket] - 1;
+      if (keys[slot].equals(key)) return slot;
+    }
+    return -1;
+  }
+
+  private void index(int slot) {
+    int mask = table.length - 1;
+    int bucket = bucketOf(keys[slot], mask);
+    while (table[bucket] != 0) bucket = (bucket + 1) & mask;
+    table[bucket] = slot + 1;
+  }
+
+  private void rebuildTable(int capacity) {
+    table = new int[capacity];
+    for (int i = 0; i < used; i++) {
+      if (keys[i] != null) index(i);
+    }
+  }
+
+  /**
+   * Removes the slot from the table and shifts back the following buckets of its cluster, so
+   * that no key is separated from its bucket by an empty one.
+   */
+  private void unindex(int slot) {
+    int mask = table.length - 1;
+    int hole = bucketOf(keys[slot], mask);
+    while (table[hole] != slot + 1) hole = (hole + 1) & mask;
+    for (int bucket = (hole + 1) & mask; table[bucket] != 0; bucket = (bucket + 1) & mask) {
+      int home = bucketOf(keys[table[bucket] - 1], mask);
+      // the key may move to the hole if the hole lies between its home and its bucket
+      if (((bucket - home) & mask) >= ((bucket - hole) & mask)) {
+        table[hole] = table[bucket];
+        hole = bucket;
+      }
+    }
+    table[hole] = 0;
+  }
+
+  /**
+   * Moves the keys to the front of the arrays, removing the empty slots, and rebuilds the table
+   * for the remaining keys (small objects go back to the linear scan).
+   */
+  private void compact() {
+    int to = 0;
+    for (int from = 0; from < used; from++) {
+      if (keys[from] == null) continue;
+      keys[to] = keys[from];
+      positions[to] = positions[from];
+      if (values != null) values[to] = values[from];
+      to++;
+    }
+    Arrays.fill(keys, to, used, null);
+    if (values != null) Arrays.fill(values, to, used, null);
+    used = to;
+    if (size > LINEAR_SCAN_LIMIT) rebuildTable(Integer.highestOneBit(size) * 4);
+    else table = null;
+  }
+
+  private void append(String key, long position) {
+    if (used == keys.length) {
+      if (size < used) {
+        compact();
+      } else {
+        keys = Arrays.copyOf(keys, used * 2);
+        positions = Arrays.copyOf(positions, used * 2);
+        if (values != null) values = Arrays.copyOf(values, used * 2);
+      }
+    }
+    keys[used] = key;
+    positions[used] = position;
+    used++;
+    size++;
+    if (table != null) {
+      if (size * 2 > table.length) rebuildTable(table.length * 2);
+      else index(used - 1);
+    } else if (size > LINEAR_SCAN_LIMIT) {
+      rebuildTable(Integer.highestOneBit(size) * 4);
+    }
+  }
+
+  @Override
+  public JsonNode get(Object key) {
+    ensureIndexed();
+    int slot = slotOf(key);
+    return slot == -1 ? null : valueAt(slot);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    ensureIndexed();
+    return slotOf(key) != -1;
+  }
+
+  @Override
+  public JsonNode put(String key, JsonNode value) {
+    ensureIndexed();
+    int slot = slotOf(key);
+    JsonNode previous = null;
+    if (slot == -1) {
+      append(key, MATERIALIZED);
+      slot = used - 1;
+    } else {
+      previous = valueAt(slot);
+    }
+    setValueAt(slot, value);
+    return previous;
+  }
+
+  @Override
+  public JsonNode remove(Object key) {
+    ensureIndexed();
+    int slot = slotOf(key);
+    if (slot == -1) return null;
+    JsonNode previous = valueAt(slot);
+    if (table != null) unindex(slot);
+    keys[slot] = null;
+    values[slot] = null;
+    size--;
+    while (used > 0 && keys[used - 1] == null) used--;
+    if (size * 2 < used || (table == null && size < used)) compact();
+    return previous;
+  }
+
+  @Override
+  public int size() {
+    ensureIndexed();
+    return size;
+  }
+
+  @Override
+  public Set<Entry<String, JsonNode>> entrySet() {
+    return new AbstractSet<Entry<String, JsonNode>>() {
+      @Override
+      public Iterator<Entry<String, JsonNode>> iterator() {
+        ensureIndexed();
+        return new Iterator<Entry<String, JsonNode>>() {
+          private int next = skipEmpty(0);
+
+          private int skipEmpty(int slot) {
+            while (slot < used && keys[slot] == null) slot++;
+            return slot;
+          }
+
+          @Override
+          public boolean hasNext() {
+            return next < used;
+          }
+
+          @Override
+          public Entry<String, JsonNode> next() {
+            if (next >= used) throw new NoSuchElementException();
+            int slot = next;
+            next = skipEmpty(next + 1);
+            return new LazyEntry(slot);
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return LazyJsonMap.this.size();
+      }
+    };
+  }
+
+  /**
+   * Map entry which parses the value only when it is requested, so iterating
+   * over the keys does not parse the values.
+   */
+  private class LazyEntry implements Entry<String, JsonNode> {
+    private final int slot;
+
+    private LazyEntry(int slot) {
+      this.slot = slot;
+    }
+
+    @Override
+    public String getKey() {
+      return keys[slot];
+    }
+
+    @Override
+    public JsonNode getValue() {
+      return valueAt(slot);
+    }
+
+    @Override
+    public JsonNode setValue(JsonNode value) {
+      JsonNode previous = valueAt(slot);
+      setValueAt(slot, value);
+      return previous;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Entry)) return false;
+      Entry<?, ?> entry = (Entry<?, ?>) obj;
+      return getKey().equals(entry.getKey()) && Objects.equals(getValue(), entry.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return getKey().hashCode() ^ Objects.hashCode(getValue());
+    }
+  }
+}
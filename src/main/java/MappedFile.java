@@ -0,0 +1,82 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * File read through memory mapped windows. The windows are aligned to their size and only the
+ * window being read is mapped, so files larger than 2 GB (the limit of a single mapping) can be
+ * read as well. Mappings can not be released explicitly, a window which is no longer read is
+ * unmapped when it is garbage collected. Closing the file closes its channel.
+ *
+ * @see JsonReader#JsonReader(Path)
+ */
+class MappedFile implements Closeable {
+  private static final long WINDOW_SIZE = 1L << 30;
+
+  private final FileChannel channel;
+  private final long size;
+  private final long windowSize;
+
+  /**
+   * Opens the file for mapping.
+   *
+   * @param path the path of the file to read
+   * @throws IOException if the file could not be opened
+   */
+  MappedFile(Path path) throws IOException {
+    this(path, WINDOW_SIZE);
+  }
+
+  /**
+   * Opens the file for mapping.
+   *
+   * @param path       the path of the file to read
+   * @param windowSize the maximal size of a mapped window
+   * @throws IOException if the file could not be opened
+   */
+  MappedFile(Path path, long windowSize) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    this.size = channel.size();
+    this.windowSize = Math.min(windowSize, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Gets the size of the file.
+   *
+   * @return the size in bytes
+   */
+  long size() {
+    return size;
+  }
+
+  /**
+   * Gets the position of the first byte of the window containing the given position.
+   *
+   * @param position the position in the file
+   * @return the start of the window
+   */
+  long windowStart(long position) {
+    return position - position % windowSize;
+  }
+
+  /**
+   * Maps the window containing the given position, index 0 of the buffer is the
+   * {@link #windowStart(long) start of the window}.
+   *
+   * @param position the position in the file (less than its size)
+   * @return the mapped window
+   * @throws IOException if the file could not be mapped
+   */
+  MappedByteBuffer window(long position) throws IOException {
+    long start = windowStart(position);
+    return channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start));
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
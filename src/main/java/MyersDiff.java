@@ -0,0 +1,112 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shortest edit script between two lists of json nodes, found by the Myers diff algorithm.
+ * Elements are compared by their fingerprints, see {@link JsonNode#structurallyEqual(JsonNode,
+ * JsonNode)}. The common prefix and suffix are skipped before running the algorithm, which takes
+ * O((N + M) * D) time and O(D^2) memory for D edits, so the number of edits is limited.
+ *
+ * @see JsonArray#createDiff(JsonNode)
+ */
+class MyersDiff {
+  private final List<JsonNode> source;
+  private final List<JsonNode> target;
+  private final boolean[] deleted;
+  private final boolean[] inserted;
+
+  /**
+   * Instantiates a new diff of the lists.
+   *
+   * @param source the source list
+   * @param target the target list
+   */
+  MyersDiff(List<JsonNode> source, List<JsonNode> target) {
+    this.source = source;
+    this.target = target;
+    this.deleted = new boolean[source.size()];
+    this.inserted = new boolean[target.size()];
+  }
+
+  /**
+   * Finds the elements to delete from the source and the elements to insert from the target.
+   *
+   * @param maxEdits the maximum number of deletions and insertions
+   * @return false if more edits are needed
+   */
+  boolean compute(int maxEdits) {
+    int start = 0;
+    int sourceEnd = source.size();
+    int targetEnd = target.size();
+    while (start < sourceEnd && start < targetEnd && JsonNode.structurallyEqual(source.get(start), target.get(start))) start++;
+    while (sourceEnd > start && targetEnd > start
+            && JsonNode.structurallyEqual(source.get(sourceEnd - 1), target.get(targetEnd - 1))) {
+      sourceEnd--;
+      targetEnd--;
+    }
+    int n = sourceEnd - start;
+    int m = targetEnd - start;
+    long[] sourceFingerprints = new long[n];
+    long[] targetFingerprints = new long[m];
+    for (int i = 0; i < n; i++) sourceFingerprints[i] = source.get(start + i).fingerprint();
+    for (int i = 0; i < m; i++) targetFingerprints[i] = target.get(start + i).fingerprint();
+
+    // v[offset + k] is the furthest x reached on the diagonal k = x - y
+    int offset = n + m + 1;
+    int[] v = new int[2 * offset + 1];
+    // the values of v in [-d, d] after each round d, used to backtrack the path
+    List<int[]> trace = new ArrayList<>();
+    for (int d = 0; d <= Math.min(n + m, maxEdits); d++) {
+      for (int k = -d; k <= d; k += 2) {
+        int x = (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) ? v[offset + k + 1] : v[offset + k - 1] + 1;
+        int y = x - k;
+        while (x < n && y < m && sourceFingerprints[x] == targetFingerprints[y]
+                && JsonNode.equalFingerprints(source.get(start + x), target.get(start + y))) {
+          x++;
+          y++;
+        }
+        v[offset + k] = x;
+      }
+      int[] round = new int[2 * d + 1];
+      System.arraycopy(v, offset - d, round, 0, round.length);
+      trace.add(round);
+      if (v[offset + n - m] >= n && ((n - m + d) & 1) == 0 && Math.abs(n - m) <= d) {
+        backtrack(trace, n, m, start);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void backtrack(List<int[]> trace, int x, int y, int start) {
+    for (int d = trace.size() - 1; d > 0; d--) {
+      int[] previous = trace.get(d - 1);
+      int k = x - y;
+      // the previous round covered the diagonals [-(d - 1), d - 1]
+      boolean down = k == -d || (k != d && previous[k - 1 + d - 1] < previous[k + 1 + d - 1]);
+      int previousK = down ? k + 1 : k - 1;
+      int previousX = previous[previousK + d - 1];
+      int previousY = previousX - previousK;
+      if (down) inserted[start + previousY] = true;
+      else deleted[start + previousX] = true;
+      x = previousX;
+      y = previousY;
+    }
+  }
+
+  /**
+   * @param index the index in the source list
+   * @return true if the element is deleted
+   */
+  boolean isDeleted(int index) {
+    return deleted[index];
+  }
+
+  /**
+   * @param index the index in the target list
+   * @return true if the element is inserted
+   */
+  boolean isInserted(int index) {
+    return inserted[index];
+  }
+}
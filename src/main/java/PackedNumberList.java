@@ -0,0 +1,208 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Children of a json array of numbers. While all elements are integral numbers fitting into long
+ * (or all are decimal numbers), the values are stored packed in a long (or double) array and the
+ * json primitives are created when the elements are accessed. Adding an element of another type
+ * converts the list to an array of nodes.
+ *
+ * @see JsonArray#toLongArray()
+ * @see JsonArray#toDoubleArray()
+ */
+class PackedNumberList extends AbstractList<JsonNode> implements RandomAccess {
+  private static final int INITIAL_CAPACITY = 8;
+
+  // at most one of the arrays is used, none while the list is empty
+  private long[] longs;
+  private double[] doubles;
+  private JsonNode[] nodes;
+  private int size;
+
+  /**
+   * Instantiates a new empty packed number list.
+   */
+  PackedNumberList() {
+  }
+
+  /**
+   * Instantiates a new packed number list of integral numbers.
+   *
+   * @param values the values (not copied)
+   */
+  PackedNumberList(long[] values) {
+    this.longs = values;
+    this.size = values.length;
+  }
+
+  /**
+   * Instantiates a new packed number list of decimal numbers.
+   *
+   * @param values the values (not copied)
+   */
+  PackedNumberList(double[] values) {
+    this.doubles = values;
+    this.size = values.length;
+  }
+
+  @Override
+  public JsonNode get(int index) {
+    checkIndex(index, size);
+    if (longs != null) return JsonPrimitive.of(longs[index]);
+    if (doubles != null) return JsonPrimitive.of(doubles[index]);
+    return nodes[index];
+  }
+
+  @Override
+  public JsonNode set(int index, JsonNode element) {
+    JsonNode previous = get(index);
+    if (!fits(element)) inflate();
+    put(index, element);
+    return previous;
+  }
+
+  @Override
+  public void add(int index, JsonNode element) {
+    checkIndex(index, size + 1);
+    if (!fits(element)) {
+      if (size == 0) {
+        longs = null;
+        doubles = null;
+        if (element instanceof JsonLongPrimitive) longs = new long[INITIAL_CAPACITY];
+        else if (element instanceof JsonDoublePrimitive) doubles = new double[INITIAL_CAPACITY];
+        else nodes = new JsonNode[INITIAL_CAPACITY];
+      } else {
+        inflate();
+      }
+    }
+    Object array;
+    if (longs != null) {
+      if (size == longs.length) longs = Arrays.copyOf(longs, grow(size));
+      array = longs;
+    } else if (doubles != null) {
+      if (size == doubles.length) doubles = Arrays.copyOf(doubles, grow(size));
+      array = doubles;
+    } else {
+      if (size == nodes.length) nodes = Arrays.copyOf(nodes, grow(size));
+      array = nodes;
+    }
+    System.arraycopy(array, index, array, index + 1, size - index);
+    size++;
+    put(index, element);
+    modCount++;
+  }
+
+  @Override
+  public JsonNode remove(int index) {
+    JsonNode previous = get(index);
+    Object array = longs != null ? longs : doubles != null ? doubles : nodes;
+    System.arraycopy(array, index + 1, array, index, size - index - 1);
+    size--;
+    if (nodes != null) nodes[size] = null;
+    modCount++;
+    return previous;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int hashCode() {
+    if (nodes != null) return super.hashCode();
+    // the same as the hash of the list of json primitives, without creating them
+    int hash = 1;
+    for (int i = 0; i < size; i++) hash = 31 * hash + JsonPrimitive.hashNumber(longs != null ? longs[i] : doubles[i]);
+    return hash;
+  }
+
+  /**
+   * @return true if the values are stored packed
+   */
+  boolean isPacked() {
+    return nodes == null;
+  }
+
+  /**
+   * Gets the fingerprint of the packed value, the same as the fingerprint of its json primitive.
+   *
+   * @param index the index
+   * @return the fingerprint
+   */
+  long fingerprint(int index) {
+    return longs != null ? JsonPrimitive.fingerprintNumber(longs[index]) : JsonPrimitive.fingerprintNumber(doubles[index]);
+  }
+
+  /**
+   * @return the values converted to long
+   * @throws ClassCastException if an element is not a number
+   */
+  long[] toLongArray() {
+    if (longs != null) return Arrays.copyOf(longs, size);
+    long[] values = new long[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = doubles != null ? (long) doubles[i] : ((JsonPrimitive<?>) nodes[i]).getAsLong();
+    }
+    return values;
+  }
+
+  /**
+   * @return the values converted to double
+   * @throws ClassCastException if an element is not a number
+   */
+  double[] toDoubleArray() {
+    if (doubles != null) return Arrays.copyOf(doubles, size);
+    double[] values = new double[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = longs != null ? longs[i] : ((JsonPrimitive<?>) nodes[i]).getAsDouble();
+    }
+    return values;
+  }
+
+  /**
+   * @return the deep copy of the list
+   */
+  PackedNumberList deepCopy() {
+    if (longs != null) return new PackedNumberList(Arrays.copyOf(longs, size));
+    if (doubles != null) return new PackedNumberList(Arrays.copyOf(doubles, size));
+    PackedNumberList copy = new PackedNumberList();
+    for (int i = 0; i < size; i++) copy.add(nodes[i].deepCopy());
+    return copy;
+  }
+
+  /**
+   * @return true if the element can be stored in the current representation
+   */
+  private boolean fits(JsonNode element) {
+    if (longs != null) return element instanceof JsonLongPrimitive;
+    if (doubles != null) return element instanceof JsonDoublePrimitive;
+    return nodes != null;
+  }
+
+  private void put(int index, JsonNode element) {
+    if (longs != null) longs[index] = ((JsonPrimitive<?>) element).getAsLong();
+    else if (doubles != null) doubles[index] = ((JsonPrimitive<?>) element).getAsDouble();
+    else nodes[index] = element;
+  }
+
+  /**
+   * Converts the packed values to json primitives.
+   */
+  private void inflate() {
+    JsonNode[] inflated = new JsonNode[Math.max(INITIAL_CAPACITY, size)];
+    for (int i = 0; i < size; i++) inflated[i] = get(i);
+    longs = null;
+    doubles = null;
+    nodes = inflated;
+  }
+
+  private static int grow(int capacity) {
+    return Math.max(INITIAL_CAPACITY, capacity + (capacity >> 1));
+  }
+
+  private static void checkIndex(int index, int size) {
+    if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+  }
+}
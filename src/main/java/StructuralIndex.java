@@ -0,0 +1,247 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Structural index of UTF-8 encoded json (the first stage of the two-stage parsing). The input is
+ * scanned in blocks of 64 bytes, eight bytes at a time, using bitwise operations on longs. For
+ * every block, bitmaps of quotes, backslashes, structural characters and whitespace are built,
+ * escaped characters and string regions are resolved, and the positions of all structural
+ * characters outside of strings, all unescaped quotes and the first characters of numbers and
+ * literals are collected to the index. Large inputs can be indexed in parallel by chunks.
+ *
+ * @see StructuralIndexParser
+ */
+class StructuralIndex {
+  private static final long ONES = 0x0101010101010101L;
+  private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+  // gathers the highest bits of all bytes to the highest byte (see byteMask)
+  private static final long GATHER = 0x0102040810204080L;
+  private static final long LOWER_CASE = 0x2020202020202020L;
+
+  private final byte[] data;
+  private final int end;
+  private int[] positions;
+  private int size;
+
+  private StructuralIndex(byte[] data, int end, int capacity) {
+    this.data = data;
+    this.end = end;
+    this.positions = new int[capacity];
+    this.size = 0;
+  }
+
+  /**
+   * Builds the structural index of the bytes in the given range of the array.
+   *
+   * @param data   the UTF-8 encoded json
+   * @param offset the index of the first byte
+   * @param length the number of bytes
+   * @return the structural index
+   * @throws MalformedJsonException if a string is not terminated
+   */
+  static StructuralIndex build(byte[] data, int offset, int length) throws MalformedJsonException {
+    if (offset < 0 || length < 0 || offset + length > data.length) throw new IndexOutOfBoundsException();
+    StructuralIndex index = new StructuralIndex(data, offset + length, Math.max(16, length / 8));
+    long inString = index.scan(offset, offset + length, false, 0, true, true);
+    if (inString != 0) throw new MalformedJsonException("Unterminated string at pos: " + (offset + length));
+    return index;
+  }
+
+  /**
+   * Builds the structural index of the bytes in the given range of the array, splitting it to
+   * chunks (of a multiple of 64 bytes) indexed in parallel. The state carried between the blocks
+   * is found for every chunk before indexing it: whether its first byte is escaped is given by the
+   * backslashes right before the chunk, and whether it starts in a string by the parity of the
+   * unescaped quotes before it, which are counted by a lighter parallel pass first.
+   *
+   * @param data   the UTF-8 encoded json
+   * @param offset the index of the first byte
+   * @param length the number of bytes
+   * @param chunks the number of chunks to split the bytes to
+   * @return the structural index, the same as the one built by {@link #build(byte[], int, int)}
+   * @throws MalformedJsonException if a string is not terminated
+   */
+  static StructuralIndex buildParallel(byte[] data, int offset, int length, int chunks) throws MalformedJsonException {
+    if (offset < 0 || length < 0 || offset + length > data.length) throw new IndexOutOfBoundsException();
+    int chunkSize = (int) Math.min(Integer.MAX_VALUE & -64, ((long) length / Math.max(1, chunks) + 63) & -64);
+    chunks = chunkSize == 0 ? 1 : (int) (((long) length + chunkSize - 1) / chunkSize);
+    if (chunks <= 1) return build(data, offset, length);
+    int end = offset + length;
+    int size = chunkSize;
+    // the unescaped quotes of every chunk, in the parity of the highest bit
+    long[] quotes = new long[chunks];
+    IntStream.range(0, chunks).parallel().forEach(chunk -> {
+      int from = offset + chunk * size;
+      quotes[chunk] = new StructuralIndex(data, end, 0).scan(from, Math.min(from + size, end), isEscaped(data, offset, from), 0, false, false);
+    });
+    long[] inString = new long[chunks];
+    for (int chunk = 1; chunk < chunks; chunk++) inString[chunk] = inString[chunk - 1] ^ quotes[chunk - 1];
+    if ((inString[chunks - 1] ^ quotes[chunks - 1]) != 0) throw new MalformedJsonException("Unterminated string at pos: " + end);
+
+    StructuralIndex[] parts = new StructuralIndex[chunks];
+    IntStream.range(0, chunks).parallel().forEach(chunk -> {
+      int from = offset + chunk * size;
+      int to = Math.min(from + size, end);
+      // the byte before the chunk is a boundary if it is structural or whitespace outside of a string
+      boolean boundary = chunk == 0 || (inString[chunk] == 0 && isStructuralOrWhitespace(data[from - 1]));
+      parts[chunk] = new StructuralIndex(data, end, Math.max(16, (to - from) / 8));
+      parts[chunk].scan(from, to, isEscaped(data, offset, from), inString[chunk], boundary, true);
+    });
+    int[] starts = new int[chunks + 1];
+    for (int chunk = 0; chunk < chunks; chunk++) starts[chunk + 1] = starts[chunk] + parts[chunk].size;
+    StructuralIndex index = new StructuralIndex(data, end, starts[chunks]);
+    IntStream.range(0, chunks).parallel().forEach(chunk ->
+            System.arraycopy(parts[chunk].positions, 0, index.positions, starts[chunk], parts[chunk].size));
+    index.size = starts[chunks];
+    return index;
+  }
+
+  /**
+   * Scans the bytes in blocks of 64 bytes. The last partial block is padded with spaces.
+   *
+   * @param from          the index of the first byte
+   * @param to            the index after the last byte
+   * @param escapedCarry  whether the first byte is escaped by a backslash
+   * @param inStringCarry -1 if the first byte is in a string, 0 otherwise
+   * @param boundaryCarry whether the byte before the first one is structural or whitespace
+   * @param collect       whether to collect the positions, or only to count the quotes
+   * @return -1 if the byte after the last one is in a string, 0 otherwise (with zero inStringCarry,
+   * the parity of the unescaped quotes)
+   */
+  private long scan(int from, int to, boolean escapedCarry, long inStringCarry, boolean boundaryCarry, boolean collect) {
+    ByteBuffer words = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+    byte[] tail = new byte[64];
+    ByteBuffer tailWords = ByteBuffer.wrap(tail).order(ByteOrder.LITTLE_ENDIAN);
+    for (int block = from; block < to; block += 64) {
+      int blockLength = Math.min(64, to - block);
+      ByteBuffer source = words;
+      int base = block;
+      if (blockLength < 64) {
+        Arrays.fill(tail, (byte) ' ');
+        System.arraycopy(data, block, tail, 0, blockLength);
+        source = tailWords;
+        base = 0;
+      }
+      long quotes = 0, backslashes = 0, structurals = 0, whitespace = 0;
+      for (int i = 0; i < 8; i++) {
+        long word = source.getLong(base + i * 8);
+        int shift = i * 8;
+        quotes |= byteMask(word, '"') << shift;
+        backslashes |= byteMask(word, '\\') << shift;
+        if (!collect) continue;
+        long lowerCase = word | LOWER_CASE;
+        // '[' and ']' differ from '{' and '}' only by the lower case bit
+        structurals |= (byteMask(lowerCase, '{') | byteMask(lowerCase, '}')
+                | byteMask(word, ':') | byteMask(word, ',')) << shift;
+        whitespace |= (byteMask(word, ' ') | byteMask(word, '\n')
+                | byteMask(word, '\r') | byteMask(word, '\t')) << shift;
+      }
+      if (blockLength < 64) {
+        long valid = -1L >>> (64 - blockLength);
+        structurals &= valid;
+        whitespace |= ~valid;
+      }
+
+      // characters escaped by a backslash (backslashes are rare, so they are resolved one by one)
+      long escaped = escapedCarry ? 1 : 0;
+      long unescapedBackslashes = backslashes & ~escaped;
+      escapedCarry = false;
+      while (unescapedBackslashes != 0) {
+        long backslash = unescapedBackslashes & -unescapedBackslashes;
+        long next = backslash << 1;
+        if (next == 0) escapedCarry = true;
+        escaped |= next;
+        unescapedBackslashes &= ~(backslash | next);
+      }
+      quotes &= ~escaped;
+
+      // prefix xor of the quotes marks the opening quotes and the content of the strings
+      long inString = quotes;
+      inString ^= inString << 1;
+      inString ^= inString << 2;
+      inString ^= inString << 4;
+      inString ^= inString << 8;
+      inString ^= inString << 16;
+      inString ^= inString << 32;
+      inString ^= inStringCarry;
+      inStringCarry = inString >> 63;
+      if (!collect) continue;
+
+      structurals &= ~inString;
+      whitespace &= ~inString;
+      // first characters of numbers and literals follow whitespace or a structural character
+      long boundaries = (structurals | whitespace) << 1 | (boundaryCarry ? 1 : 0);
+      boundaryCarry = ((structurals | whitespace) >>> 63) != 0;
+      long scalars = ~(structurals | whitespace | quotes | inString) & boundaries;
+
+      add(block, structurals | quotes | scalars);
+    }
+    return inStringCarry;
+  }
+
+  /**
+   * @return true if the byte at the position is escaped (follows an odd number of backslashes)
+   */
+  private static boolean isEscaped(byte[] data, int offset, int position) {
+    int backslash = position;
+    while (backslash > offset && data[backslash - 1] == '\\') backslash--;
+    return ((position - backslash) & 1) != 0;
+  }
+
+  private static boolean isStructuralOrWhitespace(byte c) {
+    return c == '{' || c == '}' || c == '[' || c == ']' || c == ':' || c == ','
+            || c == ' ' || c == '\n' || c == '\r' || c == '\t';
+  }
+
+  /**
+   * Finds the bytes of the word equal to the character.
+   *
+   * @return 8 bit mask, the lowest bit corresponds to the first byte of the word
+   */
+  private static long byteMask(long word, char c) {
+    long x = word ^ (ONES * c);
+    // the highest bit of every byte is set only if the byte is zero (without carries between bytes)
+    long zeros = ~(((x & LOW_BITS) + LOW_BITS) | x | LOW_BITS);
+    return ((zeros >>> 7) * GATHER) >>> 56;
+  }
+
+  private void add(int base, long bits) {
+    int count = Long.bitCount(bits);
+    if (size + count > positions.length) positions = Arrays.copyOf(positions, Math.max(size + count, positions.length * 2));
+    while (bits != 0) {
+      positions[size++] = base + Long.numberOfTrailingZeros(bits);
+      bits &= bits - 1;
+    }
+  }
+
+  /**
+   * @return the indexed json
+   */
+  byte[] getData() {
+    return data;
+  }
+
+  /**
+   * @return the index after the last byte of the indexed range
+   */
+  int getEnd() {
+    return end;
+  }
+
+  /**
+   * @return the number of indexed positions
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * @param i the index of the position
+   * @return the i-th indexed position
+   */
+  int get(int i) {
+    return positions[i];
+  }
+}
@@ -0,0 +1,301 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Second stage of the two-stage parsing. Walks the structural index and builds the json node tree.
+ * Objects and arrays are navigated only through the index. Strings without escape sequences are
+ * decoded straight from the input, other values are read by a {@link JsonReader} positioned at
+ * their first character, so the produced tree is the same as the one of {@link JsonParser}.
+ * The index is read only, so the elements of a top level array can be parsed in parallel, each
+ * range of elements by its own parser.
+ *
+ * @see StructuralIndex
+ */
+class StructuralIndexParser {
+  private final StructuralIndex index;
+  private final byte[] data;
+  private final JsonReader reader;
+  // the next entry of the index to process
+  private int next;
+
+  // the number of elements parsed by one task is chosen to get this many tasks per thread
+  private static final int TASKS_PER_THREAD = 8;
+  // the input is indexed in parallel in chunks of at least this many bytes
+  private static final int MIN_CHUNK_SIZE = 1 << 16;
+
+  private StructuralIndexParser(StructuralIndex index, JsonReader reader, int next) {
+    this.index = index;
+    this.data = index.getData();
+    this.reader = reader;
+    this.next = next;
+  }
+
+  /**
+   * Parse json node from the bytes in the given range of the array.
+   *
+   * @param data   the UTF-8 encoded json
+   * @param offset the index of the first byte
+   * @param length the number of bytes
+   * @return the parsed json node
+   * @throws MalformedJsonException the malformed json exception it the input could not be parsed
+   */
+  static JsonNode parse(byte[] data, int offset, int length) throws MalformedJsonException {
+    StructuralIndex index = StructuralIndex.build(data, offset, length);
+    checkDocumentStart(index);
+    StructuralIndexParser parser = new StructuralIndexParser(index, new JsonReader(data, offset, length), 0);
+    JsonNode res = parser.parseValue();
+    checkDocumentEnd(index, parser.next);
+    return res;
+  }
+
+  /**
+   * Parse json node from the bytes in the given range of the array. The structural index is built
+   * in parallel. If the top level value is an array, the boundaries of its elements are found in
+   * the index and the elements are parsed in parallel. Other documents are parsed as by
+   * {@link #parse(byte[], int, int)}.
+   *
+   * @param data   the UTF-8 encoded json
+   * @param offset the index of the first byte
+   * @param length the number of bytes
+   * @return the parsed json node
+   * @throws MalformedJsonException the malformed json exception it the input could not be parsed
+   */
+  static JsonNode parseParallel(byte[] data, int offset, int length) throws MalformedJsonException {
+    // on a single processor the chunks would only add the pass counting the quotes
+    int tasks = Runtime.getRuntime().availableProcessors() > 1 ? ForkJoinPool.getCommonPoolParallelism() * TASKS_PER_THREAD : 1;
+    return parseParallel(data, offset, length, Math.max(1, Math.min(tasks, length / MIN_CHUNK_SIZE)));
+  }
+
+  /**
+   * Parse json node from the bytes in the given range of the array, splitting the input and the
+   * structural index to the given number of chunks.
+   *
+   * @see #parseParallel(byte[], int, int)
+   */
+  static JsonNode parseParallel(byte[] data, int offset, int length, int chunks) throws MalformedJsonException {
+    StructuralIndex index = StructuralIndex.buildParallel(data, offset, length, chunks);
+    checkDocumentStart(index);
+    if (data[index.get(0)] != '[') {
+      StructuralIndexParser parser = new StructuralIndexParser(index, new JsonReader(data, offset, length), 0);
+      JsonNode res = parser.parseValue();
+      checkDocumentEnd(index, parser.next);
+      return res;
+    }
+
+    // index entries of the first characters of the elements, followed by the entry of the closing bracket
+    int[] boundaries = findElements(index, chunks);
+    int elementCount = boundaries.length - 1;
+    JsonNode[] elements = new JsonNode[elementCount];
+    int batch = Math.max(1, elementCount / (ForkJoinPool.getCommonPoolParallelism() * TASKS_PER_THREAD));
+    try {
+      IntStream.range(0, (elementCount + batch - 1) / batch).parallel().forEach(task -> {
+        int from = task * batch;
+        int to = Math.min(from + batch, elementCount);
+        StructuralIndexParser parser = new StructuralIndexParser(index, new JsonReader(data, offset, length), boundaries[from]);
+        try {
+          for (int i = from; i < to; i++) {
+            elements[i] = parser.parseValue();
+            // the value must end right before the comma found above (or the closing bracket)
+            int end = boundaries[i + 1] - 1;
+            if (i + 1 == elementCount && data[index.get(end)] != ',') end++;
+            if (parser.next != end) throw unexpected(data, index.get(parser.next));
+            parser.next = boundaries[i + 1];
+          }
+        } catch (MalformedJsonException e) {
+          throw new IllegalStateException(e);
+        }
+      });
+    } catch (IllegalStateException e) {
+      // the exception may be rethrown wrapped once more by the fork join pool
+      for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+        if (cause instanceof MalformedJsonException) throw (MalformedJsonException) cause;
+      }
+      throw e;
+    }
+    List<JsonNode> children = elementCount > 0 && elements[0].isJsonPrimitive() && elements[0].getAsJsonPrimitive().isNumber()
+            ? new PackedNumberList() : new ArrayList<>(elementCount);
+    children.addAll(Arrays.asList(elements));
+    return JsonArray.wrap(children);
+  }
+
+  /**
+   * Finds the index entries of the first characters of the elements of the top level array,
+   * followed by the entry of its closing bracket. The entries are split to ranges scanned in
+   * parallel twice: first for the change of the depth over every range, which gives the depth at
+   * the start of every range, then for the elements.
+   */
+  private static int[] findElements(StructuralIndex index, int chunks) throws MalformedJsonException {
+    byte[] data = index.getData();
+    int entries = index.size();
+    int rangeSize = Math.max(1, (int) (((long) entries + chunks - 1) / chunks));
+    int ranges = (entries + rangeSize - 1) / rangeSize;
+    // the change of the depth over every range and the lowest depth reached after a closing bracket
+    int[] changes = new int[ranges];
+    int[] lowest = new int[ranges];
+    IntStream.range(0, ranges).parallel().forEach(range -> {
+      int depth = 0;
+      int min = Integer.MAX_VALUE;
+      for (int entry = range * rangeSize, to = Math.min(entry + rangeSize, entries); entry < to; entry++) {
+        byte c = data[index.get(entry)];
+        if (c == '[' || c == '{') depth++;
+        else if (c == ']' || c == '}') min = Math.min(min, --depth);
+      }
+      changes[range] = depth;
+      lowest[range] = min;
+    });
+    int[] depths = new int[ranges];
+    // the range closing the top level array
+    int last = -1;
+    for (int range = 0, depth = 0; range < ranges; depth += changes[range++]) {
+      depths[range] = depth;
+      if (lowest[range] <= -depth) {
+        last = range;
+        break;
+      }
+    }
+    if (last < 0) throw new MalformedJsonException("Unexpected end of input at pos: " + index.getEnd());
+
+    int[][] found = new int[last + 1][];
+    int[] counts = new int[last + 1];
+    int[] closing = new int[1];
+    IntStream.rangeClosed(0, last).parallel().forEach(range -> {
+      int[] starts = new int[16];
+      int count = 0;
+      int depth = depths[range];
+      for (int entry = range * rangeSize, to = Math.min(entry + rangeSize, entries); entry < to; entry++) {
+        byte c = data[index.get(entry)];
+        // an element starts after the opening bracket or after a comma of the top level array
+        if (depth == 1 && c != ']' && (entry == 1 || data[index.get(entry - 1)] == ',')) {
+          if (count == starts.length) starts = Arrays.copyOf(starts, count * 2);
+          starts[count++] = entry;
+        }
+        if (c == '[' || c == '{') {
+          depth++;
+        } else if ((c == ']' || c == '}') && --depth == 0) {
+          closing[0] = entry;
+          break;
+        }
+      }
+      found[range] = starts;
+      counts[range] = count;
+    });
+    int entry = closing[0];
+    if (data[index.get(entry)] != ']') throw unexpected(data, index.get(entry));
+    checkDocumentEnd(index, entry + 1);
+
+    int count = 0;
+    for (int range = 0; range <= last; range++) count += counts[range];
+    int[] starts = new int[count + 1];
+    for (int range = 0, position = 0; range <= last; position += counts[range++]) {
+      System.arraycopy(found[range], 0, starts, position, counts[range]);
+    }
+    starts[count] = entry;
+    return starts;
+  }
+
+  private static void checkDocumentStart(StructuralIndex index) throws MalformedJsonException {
+    byte[] data = index.getData();
+    // must not be primitive
+    if (index.size() == 0 || (data[index.get(0)] != '{' && data[index.get(0)] != '[')) {
+      throw new MalformedJsonException("Top level value must be an object or an array");
+    }
+  }
+
+  private static void checkDocumentEnd(StructuralIndex index, int next) throws MalformedJsonException {
+    if (next != index.size()) {
+      throw new MalformedJsonException("Unexpected data after the top level value at pos: " + index.get(next));
+    }
+  }
+
+  private JsonNode parseValue() throws MalformedJsonException {
+    int position = nextEntry();
+    switch (data[position]) {
+      case '{':
+        JsonObject jsonObject = new JsonObject();
+        while (peekEntry() != '}') {
+          String key = parseString(nextEntry());
+          if (data[nextEntry()] != ':') throw unexpected(data, index.get(next - 1));
+          jsonObject.add(key, parseValue());
+          if (endOfContainer('}')) break;
+        }
+        next++;
+        return jsonObject;
+      case '[':
+        // arrays of numbers are stored packed
+        JsonArray jsonArray = JsonArray.wrap(isNumberStart(peekEntry()) ? new PackedNumberList() : new ArrayList<>());
+        while (peekEntry() != ']') {
+          jsonArray.add(parseValue());
+          if (endOfContainer(']')) break;
+        }
+        next++;
+        return jsonArray;
+      case '"':
+        return JsonPrimitive.of(parseString(position));
+      default:
+        reader.seek(position);
+        JsonNode primitive = JsonParser.parse(reader);
+        checkEndOfValue((int) reader.getPosition());
+        return primitive;
+    }
+  }
+
+  /**
+   * Consumes the separator after a value of an object or array.
+   *
+   * @return true if the closing bracket follows (it is not consumed)
+   */
+  private boolean endOfContainer(char bracket) throws MalformedJsonException {
+    int c = peekEntry();
+    if (c == bracket) return true;
+    if (c != ',') throw unexpected(data, index.get(next));
+    next++;
+    // trailing comma
+    return peekEntry() == bracket;
+  }
+
+  private String parseString(int open) throws MalformedJsonException {
+    if (data[open] != '"') throw unexpected(data, open);
+    // the closing quote is always the next entry, quotes inside of the string are escaped
+    int close = nextEntry();
+    checkEndOfValue(close + 1);
+    for (int i = open + 1; i < close; i++) {
+      if (data[i] == '\\') {
+        reader.seek(open);
+        return reader.nextString();
+      }
+    }
+    return new String(data, open + 1, close - open - 1, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Checks that a value ending at the position is followed by whitespace or by the next
+   * indexed character (other characters directly following a value are not indexed).
+   */
+  private void checkEndOfValue(int position) throws MalformedJsonException {
+    if (position == index.getEnd() || (next < index.size() && index.get(next) == position)) return;
+    byte c = data[position];
+    if (c != ' ' && c != '\n' && c != '\r' && c != '\t') throw unexpected(data, position);
+  }
+
+  private static boolean isNumberStart(int c) {
+    return (c >= '0' && c <= '9') || c == '-' || c == '.';
+  }
+
+  private int nextEntry() throws MalformedJsonException {
+    if (next == index.size()) throw new MalformedJsonException("Unexpected end of input at pos: " + index.getEnd());
+    return index.get(next++);
+  }
+
+  private int peekEntry() throws MalformedJsonException {
+    if (next == index.size()) throw new MalformedJsonException("Unexpected end of input at pos: " + index.getEnd());
+    return data[index.get(next)];
+  }
+
+  private static MalformedJsonException unexpected(byte[] data, int position) {
+    return new MalformedJsonException("Unexpected character '" + (char) (data[position] & 0xFF) + "' at pos: " + position);
+  }
+}
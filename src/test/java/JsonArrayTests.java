@@ -76,4 +76,40 @@ class JsonArrayTests {
     assertEquals(arrayList, node.getAsJsonArray().getChildren());
     assertEquals(node, node.getAsJsonArray());
   }
+
+  @Test
+  @DisplayName("Packed arrays of numbers")
+  void packedNumbers() throws MalformedJsonException {
+    JsonArray longs = new JsonArray("[1, -2, 300000000000]");
+    assertEquals("[1,-2,300000000000]", longs.toString());
+    assertEquals(JsonArray.of(1, -2, 300000000000L), longs);
+    assertEquals(300000000000.0, longs.toDoubleArray()[2]);
+    assertEquals(-2L, longs.get(1).getAsJsonPrimitive().getAsLong());
+
+    JsonArray doubles = new JsonArray("[1.5, 2.0, -0.25]");
+    assertEquals("[1.5,2.0,-0.25]", doubles.toString());
+    assertEquals(1L, doubles.toLongArray()[0]);
+    assertEquals(JsonArray.of(1.5, 2.0, -0.25), doubles.deepCopy());
+
+    // elements of other types unpack the values
+    longs.add(JsonPrimitive.of(4));
+    longs.set(0, JsonPrimitive.of(0.5));
+    assertEquals("[0.5,-2,300000000000,4]", longs.toString());
+    assertEquals(-2.0, longs.toDoubleArray()[1]);
+    longs.set(1, new JsonPrimitive<>("str"));
+    assertEquals(new JsonArray("[0.5,\"str\",300000000000,4]"), longs);
+    longs.remove(1);
+    assertEquals("[0.5,300000000000,4]", longs.toString());
+    assertEquals("[1,2.5]", new JsonArray("[1,2.5]").toString());
+    assertEquals("[1,true,{}]", new JsonArray("[1,true,{},]").toString());
+    assertThrows(ClassCastException.class, () -> new JsonArray("[1,true]").toLongArray());
+
+    JsonArray built = new JsonArray("[]");
+    built.add(JsonPrimitive.of(7.5));
+    built.add(JsonPrimitive.of(8.5));
+    assertEquals(16.0, built.toDoubleArray()[0] + built.toDoubleArray()[1]);
+    built.remove(0);
+    built.remove(0);
+    assertEquals(new JsonArray(), built);
+  }
 }
@@ -2,9 +2,16 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 @DisplayName("Json diffing tests")
 class JsonDiffingTests {
@@ -71,4 +78,237 @@ class JsonDiffingTests {
     JsonDiff diff = root.createDiff(rootCopy);
     assertEquals(root.applyDiff(diff), rootCopy);
   }
+
+  @Test
+  @DisplayName("Structural hash")
+  void structuralHash() throws MalformedJsonException {
+    JsonNode parsed = JsonParser.parse("{\"b\":[1,2.5,-0.0],\"a\":{\"x\":\"str\",\"y\":true}}");
+    JsonObject built = new JsonObject();
+    JsonObject inner = new JsonObject();
+    inner.add("y", new JsonPrimitive<>(true));
+    inner.add("x", new JsonPrimitive<>("str"));
+    built.add("a", inner);
+    JsonArray numbers = new JsonArray();
+    numbers.add(new JsonPrimitive<>(1.0));
+    numbers.add(new JsonPrimitive<>(2.5f));
+    numbers.add(new JsonPrimitive<>(0));
+    built.add("b", numbers);
+    assertEquals(parsed, built);
+    assertEquals(parsed.hashCode(), built.hashCode());
+    assertEquals(JsonArray.of(1, 2, 3).hashCode(), new JsonArray("[1.0,2,3]").hashCode());
+
+    // modifications of nested nodes invalidate the cached hashes of the ancestors
+    int hash = built.hashCode();
+    inner.add("x", new JsonPrimitive<>("changed"));
+    assertNotEquals(hash, built.hashCode());
+    assertNotEquals(parsed, built);
+    inner.add("x", new JsonPrimitive<>("str"));
+    assertEquals(hash, built.hashCode());
+    assertEquals(parsed, built);
+    numbers.set(2, new JsonPrimitive<>(7));
+    assertNotEquals(parsed, built);
+    numbers.remove(2);
+    numbers.add(JsonPrimitive.of(0));
+    assertEquals(parsed, built);
+
+    // only the changed subtrees are diffed
+    JsonObject a = new JsonObject();
+    for (int i = 0; i < 100; i++) {
+      JsonObject child = new JsonObject();
+      child.add("id", JsonPrimitive.of(i));
+      child.add("values", JsonArray.of(i, i + 1, i + 2));
+      a.add("child" + i, child);
+    }
+    JsonObject b = a.deepCopy();
+    b.get("child42").getAsJsonObject().add("id", JsonPrimitive.of(-1));
+    b.remove("child7");
+    JsonDiff diff = a.createDiff(b);
+    assertEquals("{\"add\":{\"child42\":{\"id\":-1}},\"remove\":{\"child7\":true}}", diff.toString());
+    assertEquals(b, a.deepCopy().applyDiff(diff));
+  }
+
+  @Test
+  @DisplayName("Structural hash of shared subtrees")
+  void sharedSubtrees() throws MalformedJsonException {
+    JsonObject shared = new JsonObject("{\"x\":[1,2,{\"y\":\"z\"}]}");
+    JsonObject first = new JsonObject();
+    first.add("shared", shared);
+    JsonArray second = new JsonArray();
+    second.add(new JsonObject());
+    second.get(0).getAsJsonObject().add("shared", shared);
+    JsonNode firstCopy = first.deepCopy(), secondCopy = second.deepCopy();
+    int firstHash = first.hashCode(), secondHash = second.hashCode();
+    assertEquals(firstCopy.hashCode(), firstHash);
+    assertEquals(secondCopy.hashCode(), secondHash);
+
+    // the modification of the subtree is seen by all the trees using it
+    JsonObject leaf = shared.get("x").getAsJsonArray().get(2).getAsJsonObject();
+    leaf.add("y", JsonPrimitive.of("changed"));
+    assertNotEquals(firstHash, first.hashCode());
+    assertNotEquals(secondHash, second.hashCode());
+    assertNotEquals(firstCopy, first);
+    assertEquals(first, firstCopy.applyDiff(firstCopy.createDiff(first)));
+    assertEquals(second, secondCopy.applyDiff(secondCopy.createDiff(second)));
+    leaf.add("y", JsonPrimitive.of("z"));
+    assertEquals(firstHash, first.hashCode());
+    assertEquals(secondHash, second.hashCode());
+
+    // the subtree moved to another object invalidates its new parent
+    JsonArray numbers = shared.get("x").getAsJsonArray();
+    shared.remove("x");
+    JsonObject other = new JsonObject();
+    other.add("x", numbers);
+    int otherHash = other.hashCode();
+    assertEquals(shared.hashCode(), new JsonObject().hashCode());
+    numbers.add(JsonPrimitive.of(3));
+    assertNotEquals(otherHash, other.hashCode());
+    assertEquals(new JsonObject("{\"x\":[1,2,{\"y\":\"z\"},3]}"), other);
+    // the versions created by path copying share the unchanged subtrees, both see their modifications
+    JsonObject version = other.applyDiff(other.createDiff(new JsonObject("{\"x\":[1,2,{\"y\":\"z\"},3],\"w\":1}"))).getAsJsonObject();
+    assertSame(numbers, version.get("x"));
+    int versionHash = version.hashCode();
+    otherHash = other.hashCode();
+    numbers.remove(3);
+    assertNotEquals(versionHash, version.hashCode());
+    assertNotEquals(otherHash, other.hashCode());
+    assertEquals(new JsonObject("{\"x\":[1,2,{\"y\":\"z\"}],\"w\":1}"), version);
+
+    // the collections passed to the constructors are copied
+    List<JsonNode> list = new ArrayList<>(Arrays.asList(JsonPrimitive.of(1), JsonPrimitive.of(2)));
+    JsonArray fromList = new JsonArray(list);
+    int listHash = fromList.hashCode();
+    list.set(0, JsonPrimitive.of(5));
+    assertEquals(listHash, fromList.hashCode());
+    assertEquals(JsonArray.of(1, 2), fromList);
+    Map<String, JsonNode> map = new HashMap<>();
+    map.put("a", JsonPrimitive.of(1));
+    JsonObject fromMap = new JsonObject(map);
+    int mapHash = fromMap.hashCode();
+    map.put("a", JsonPrimitive.of(2));
+    assertEquals(mapHash, fromMap.hashCode());
+    assertEquals(new JsonObject("{\"a\":1}"), fromMap);
+
+    // integral numbers differing beyond the precision of doubles are different
+    assertNotEquals(JsonArray.of(1L << 53), JsonArray.of((1L << 53) + 1));
+    assertNotEquals(new JsonDiff().toString(), JsonArray.of(1L << 53).createDiff(JsonArray.of((1L << 53) + 1)).toString());
+  }
+
+  @Test
+  @DisplayName("Array splices")
+  void arraySplices() throws MalformedJsonException {
+    JsonArray a = new JsonArray("[1,\"two\",{\"three\":3},[4],5,6,7,8,9,10]");
+    JsonArray b = new JsonArray("[1,{\"three\":3},[4],\"five\",6,7,8,9,10,11]");
+    JsonDiff diff = a.createDiff(b);
+    assertEquals("{\"splice\":[{\"index\":1,\"remove\":1},{\"index\":4,\"remove\":1,\"add\":[\"five\"]},"
+            + "{\"index\":10,\"add\":[11]}]}", diff.toString());
+    JsonArray copy = a.deepCopy();
+    assertEquals(b, a.applyDiff(diff));
+    assertEquals(copy, a);
+
+    // nested arrays are spliced in place
+    JsonObject root = new JsonObject();
+    root.add("arr", a);
+    JsonObject target = root.deepCopy();
+    target.get("arr").getAsJsonArray().add(JsonPrimitive.of("appended"));
+    diff = root.createDiff(target);
+    assertEquals("{\"splice\":{\"arr\":[{\"index\":10,\"add\":[\"appended\"]}]}}", diff.toString());
+    assertEquals(target, root.deepCopy().applyDiff(diff));
+
+    // arrays changed too much are replaced
+    diff = a.createDiff(new JsonArray("[0,1]"));
+    assertEquals("{\"remove\":true,\"add\":[0,1]}", diff.toString());
+
+    Random random = new Random(7);
+    for (int round = 0; round < 200; round++) {
+      JsonArray source = new JsonArray();
+      int size = random.nextInt(40);
+      for (int i = 0; i < size; i++) source.add(JsonPrimitive.of(random.nextInt(10)));
+      JsonArray changed = source.deepCopy();
+      for (int edits = random.nextInt(6); edits > 0; edits--) {
+        int length = changed.getChildren().size();
+        int operation = random.nextInt(3);
+        if (operation == 0 || length == 0) changed.add(JsonPrimitive.of(random.nextInt(10)));
+        else if (operation == 1) changed.remove(random.nextInt(length));
+        else changed.set(random.nextInt(length), new JsonArray());
+      }
+      assertEquals(changed, source.applyDiff(source.createDiff(changed)));
+    }
+  }
+
+  @Test
+  @DisplayName("Path copying")
+  void pathCopying() throws MalformedJsonException {
+    JsonObject source = new JsonObject("{\"a\":{\"b\":{\"c\":1},\"d\":[1,2]},\"e\":{\"f\":true},\"g\":\"str\","
+            + "\"h\":{\"i\":1}}");
+    JsonObject target = new JsonObject("{\"a\":{\"b\":{\"c\":2},\"d\":[1,2]},\"e\":{\"f\":true},\"g\":{\"x\":[]},"
+            + "\"h\":{}}");
+    JsonObject copy = source.deepCopy();
+    JsonDiff diff = source.createDiff(target);
+    JsonNode applied = source.applyDiff(diff);
+    assertEquals(target, applied);
+    assertEquals(copy, source);
+    // the untouched subtrees are shared
+    assertSame(source.get("e"), applied.getAsJsonObject().get("e"));
+    assertSame(source.get("a").getAsJsonObject().get("d"), applied.getAsJsonObject().get("a").getAsJsonObject().get("d"));
+    assertNotSame(source.get("a"), applied.getAsJsonObject().get("a"));
+    // applying the diff again gives the same result
+    assertEquals(target, source.applyDiff(diff));
+  }
+
+  @Test
+  @DisplayName("Diff composition")
+  void composition() throws MalformedJsonException {
+    JsonNode first = new JsonObject("{\"a\":[1,2,3,4,5,6,7,8,9],\"b\":{\"c\":1,\"d\":2},\"e\":\"str\"}");
+    JsonNode second = new JsonObject("{\"a\":[1,3,4,5,6,7,8,9,10],\"b\":{\"c\":1},\"e\":{\"f\":1}}");
+    JsonNode third = new JsonObject("{\"a\":[0,1,3,4,5,6,7,9,10],\"b\":{\"c\":1,\"g\":[]},\"e\":{\"f\":2}}");
+    JsonDiff composed = JsonDiff.compose(first.createDiff(second), second.createDiff(third));
+    assertEquals("{\"add\":{\"b\":{\"g\":[]},\"e\":{\"f\":2}},\"remove\":{\"b\":{\"d\":true}},"
+            + "\"splice\":{\"a\":[{\"index\":0,\"add\":[0]},{\"index\":1,\"remove\":1},{\"index\":7,\"remove\":1},"
+            + "{\"index\":9,\"add\":[10]}]}}", composed.toString());
+    assertEquals(third, first.applyDiff(composed));
+    assertEquals(third, first.applyDiffs(Arrays.asList(first.createDiff(second), second.createDiff(third))));
+    assertEquals(first, first.applyDiffs(new ArrayList<>()));
+
+    Random random = new Random(11);
+    for (int round = 0; round < 200; round++) {
+      JsonObject source = new JsonObject();
+      for (int i = 0; i < 6; i++) source.add("k" + i, randomValue(random, 2));
+      List<JsonDiff> diffs = new ArrayList<>();
+      JsonNode current = source;
+      for (int step = random.nextInt(6); step > 0; step--) {
+        JsonObject next = current.getAsJsonObject().deepCopy();
+        for (int i = 0; i < 6; i++) {
+          String key = "k" + random.nextInt(6);
+          JsonNode value = next.get(key);
+          int change = random.nextInt(4);
+          if (change == 0) next.remove(key);
+          else if (change == 1 || value == null) next.add(key, randomValue(random, 2));
+          else if (value.isJsonArray() && !value.getAsJsonArray().getChildren().isEmpty()) {
+            value.getAsJsonArray().set(random.nextInt(value.getAsJsonArray().getChildren().size()), randomValue(random, 0));
+            value.getAsJsonArray().add(random.nextInt(value.getAsJsonArray().getChildren().size() + 1), randomValue(random, 0));
+          } else if (value.isJsonObject()) value.getAsJsonObject().add("k" + random.nextInt(3), randomValue(random, 1));
+        }
+        diffs.add(current.createDiff(next));
+        current = next;
+      }
+      JsonNode sequential = source;
+      for (JsonDiff diff : diffs) sequential = sequential.applyDiff(diff);
+      assertEquals(current, sequential);
+      assertEquals(current, source.applyDiffs(diffs));
+    }
+  }
+
+  private static JsonNode randomValue(Random random, int depth) {
+    int type = random.nextInt(depth > 0 ? 4 : 2);
+    if (type == 0) return JsonPrimitive.of(random.nextInt(4));
+    if (type == 1) return JsonPrimitive.of("s" + random.nextInt(3));
+    if (type == 2) {
+      JsonArray array = new JsonArray();
+      for (int i = random.nextInt(12); i > 0; i--) array.add(randomValue(random, 0));
+      return array;
+    }
+    JsonObject object = new JsonObject();
+    for (int i = random.nextInt(4); i > 0; i--) object.add("k" + random.nextInt(3), randomValue(random, depth - 1));
+    return object;
+  }
 }
@@ -2,7 +2,20 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @DisplayName("Json formatter test")
 class JsonFormatterTests {
@@ -25,10 +38,62 @@ class JsonFormatterTests {
   @Test
   @DisplayName("Compact test")
   void compactTest() {
-    assertEquals("{\"arr\":[{\"str\":\"str\",\"bool\":false,\"str2\":\"str2\"}],\"obj\":{\"str\":\"str\",\"bool\":false,\"str2\":\"str2\"},\"int\":50}", root.toString());
+    assertEquals("{\"arr\":[{\"bool\":false,\"str\":\"str\",\"str2\":\"str2\"}],\"int\":50,\"obj\":{\"bool\":false,\"str\":\"str\",\"str2\":\"str2\"}}", root.toString());
     assertEquals(root.toString(),root.toString(4).replaceAll("\\s+", ""));
   }
 
+  @Test
+  @DisplayName("Reformat without tree")
+  void reformat() throws MalformedJsonException {
+    root.add("empty", new JsonArray());
+    root.add("emptyObj", new JsonObject());
+    root.add("null", JsonPrimitive.ofNull());
+    root.get("arr").getAsJsonArray().add(JsonPrimitive.ofNull());
+    for (int indent : new int[]{0, 2, 4}) {
+      JsonFormatter formatter = new JsonFormatter(indent);
+      JsonParser.parse(root.toString(3), formatter);
+      assertEquals(root.toString(indent), formatter.getFormattedJson());
+    }
+
+    // handlers not overriding nullValue receive the nulls as null strings
+    List<String> strings = new ArrayList<>();
+    JsonParser.parse("{\"a\":null,\"b\":[\"x\",null]}", new JsonHandler() {
+      @Override
+      public void startObject() {
+      }
+
+      @Override
+      public void key(String key) {
+      }
+
+      @Override
+      public void endObject() {
+      }
+
+      @Override
+      public void startArray() {
+      }
+
+      @Override
+      public void endArray() {
+      }
+
+      @Override
+      public void primitive(String value) {
+        strings.add(value);
+      }
+
+      @Override
+      public void primitive(Number value) {
+      }
+
+      @Override
+      public void primitive(boolean value) {
+      }
+    });
+    assertEquals(Arrays.asList(null, "x", null), strings);
+  }
+
   @Test
   @DisplayName("Manual diff creation")
   void manualDiffCreation() throws MalformedJsonException {
@@ -37,4 +102,93 @@ class JsonFormatterTests {
     assertEquals(true, JsonDiff.isValidDiff(diff.getDiff()));
     assertEquals("{\"a\":52}", new JsonObject().applyDiff(diff).toString());
   }
+
+  @Test
+  @DisplayName("Streaming to writers, streams and channels")
+  void outputs() throws IOException {
+    JsonArray big = new JsonArray();
+    for (int i = 0; i < 2000; i++) {
+      big.add(new JsonPrimitive<>("\u017elu\u0165ou\u010dk\u00fd k\u016f\u0148 \ud83d\udc0e " + i));
+      big.add(JsonPrimitive.of(-i * 1234567L));
+      big.add(JsonPrimitive.of(i / 8.0));
+    }
+    root.add("big", big);
+    for (int indent : new int[]{0, 2}) {
+      String expected = root.toString(indent);
+      StringWriter writer = new StringWriter();
+      root.writeTo(writer, indent);
+      assertEquals(expected, writer.toString());
+
+      ByteArrayOutputStream stream = new ByteArrayOutputStream();
+      root.writeTo(stream, indent);
+      assertEquals(expected, new String(stream.toByteArray(), StandardCharsets.UTF_8));
+
+      ByteArrayOutputStream channelStream = new ByteArrayOutputStream();
+      JsonFormatter formatter = new JsonFormatter(indent, Channels.newChannel(channelStream));
+      root.accept(formatter);
+      formatter.flush();
+      assertEquals(expected, new String(channelStream.toByteArray(), StandardCharsets.UTF_8));
+      assertThrows(UnsupportedOperationException.class, formatter::getFormattedJson);
+    }
+  }
+
+  @Test
+  @DisplayName("Serializing to bytes")
+  void bytes() {
+    byte[] small = root.toByteArray();
+    assertArrayEquals(root.toString().getBytes(StandardCharsets.UTF_8), small);
+    // the pooled buffer is reused
+    assertArrayEquals(small, root.toByteArray());
+
+    JsonArray big = new JsonArray();
+    for (int i = 0; i < 5000; i++) big.add(new JsonPrimitive<>("\u017elu\u0165ou\u010dk\u00fd k\u016f\u0148 \ud83d\udc0e " + i));
+    root.add("big", big);
+    byte[] expected = root.toString(2).getBytes(StandardCharsets.UTF_8);
+    assertArrayEquals(expected, root.toByteArray(2));
+    assertEquals("{}", new String(new JsonObject().toByteArray(), StandardCharsets.UTF_8));
+
+    for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(16), ByteBuffer.allocateDirect(16),
+            ByteBuffer.allocate(expected.length + 10), ByteBuffer.wrap(new byte[expected.length + 20], 10, expected.length + 5)}) {
+      int start = buffer.position();
+      buffer.put((byte) 'x');
+      int limit = buffer.limit();
+      ByteBuffer written = root.writeTo(buffer, 2);
+      assertEquals(start + 1 + expected.length, written.position());
+      assertEquals(buffer.isDirect(), written.isDirect());
+      if (buffer.capacity() >= expected.length + 10) {
+        assertSame(buffer, written);
+      } else {
+        // the replaced buffer is left as it was given
+        assertEquals(start + 1, buffer.position());
+        assertEquals(limit, buffer.limit());
+      }
+      written.flip().position(start);
+      assertEquals('x', written.get());
+      byte[] json = new byte[expected.length];
+      written.get(json);
+      assertArrayEquals(expected, json);
+    }
+  }
+
+  @Test
+  @DisplayName("Escaping")
+  void escaping() throws MalformedJsonException, IOException {
+    StringBuilder controls = new StringBuilder();
+    for (char c = 0; c < 0x20; c++) controls.append(c);
+    String special = "quote \" backslash \\ slash / \u017e \ud83d\udc0e " + controls;
+    JsonObject obj = new JsonObject();
+    obj.add("key \"\\\n", new JsonPrimitive<>(special));
+    obj.add("plain", new JsonPrimitive<>("no escapes"));
+    assertEquals("{\"key \\\"\\\\\\n\":\"quote \\\" backslash \\\\ slash / \u017e \ud83d\udc0e "
+            + "\\u0000\\u0001\\u0002\\u0003\\u0004\\u0005\\u0006\\u0007\\b\\t\\n\\u000b\\f\\r\\u000e\\u000f"
+            + "\\u0010\\u0011\\u0012\\u0013\\u0014\\u0015\\u0016\\u0017\\u0018\\u0019\\u001a\\u001b\\u001c\\u001d\\u001e\\u001f\","
+            + "\"plain\":\"no escapes\"}", obj.toString());
+    for (int indent : new int[]{0, 3, 100}) {
+      assertEquals(obj, JsonParser.parse(obj.toString(indent)));
+      ByteArrayOutputStream stream = new ByteArrayOutputStream();
+      obj.writeTo(stream, indent);
+      assertEquals(obj, JsonParser.parse(stream.toByteArray(), JsonParser.Engine.STRUCTURAL_INDEX));
+    }
+    assertEquals("{\n" + new String(new char[100]).replace('\0', ' ') + "\"key \\\"", obj.toString(100).substring(0, 109));
+  }
 }
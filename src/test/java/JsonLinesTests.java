@@ -0,0 +1,149 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Json lines tests")
+class JsonLinesTests {
+  private List<JsonNode> records() {
+    JsonObject object = new JsonObject();
+    object.add("id", new JsonPrimitive<>(1));
+    object.add("tags", new JsonArray(Arrays.asList(new JsonPrimitive<>("a"), new JsonPrimitive<>("b"))));
+    JsonArray array = new JsonArray();
+    array.add(new JsonPrimitive<>(true));
+    array.add(new JsonObject());
+    return Arrays.asList(object, array, new JsonPrimitive<>("str"), new JsonPrimitive<>(2.5));
+  }
+
+  @Test
+  @DisplayName("Writing and reading records")
+  void roundTrip() throws IOException, MalformedJsonException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (JsonLinesWriter writer = new JsonLinesWriter(out)) {
+      for (JsonNode node : records()) writer.write(node);
+    }
+    String lines = new String(out.toByteArray(), StandardCharsets.UTF_8);
+    assertEquals("{\"id\":1,\"tags\":[\"a\",\"b\"]}\n[true,{}]\n\"str\"\n2.5\n", lines);
+
+    try (JsonLinesReader reader = new JsonLinesReader(new ByteArrayInputStream(out.toByteArray()))) {
+      assertEquals(records().toString(), reader.stream().collect(Collectors.toList()).toString());
+    }
+    JsonLinesReader reader = new JsonLinesReader(new StringReader(lines));
+    for (JsonNode node : records()) assertEquals(node.toString(), reader.nextNode().toString());
+    assertNull(reader.nextNode());
+  }
+
+  @Test
+  @DisplayName("Blank lines and malformed records")
+  void lenience() throws MalformedJsonException {
+    JsonLinesReader reader = new JsonLinesReader(new StringReader("\n{\"a\":1}\r\n\n  [2]\n{\"b\":}\n"));
+    assertTrue(reader.hasNext());
+    assertEquals("{\"a\":1}", reader.next().toString());
+    assertEquals("[2]", reader.next().toString());
+    assertThrows(IllegalStateException.class, reader::next);
+
+    // exactly one record per line, malformed lines are reported and skipped
+    JsonLinesReader lines = new JsonLinesReader(new StringReader("[1] [2]\n[3,\n4]\n\"a\nb\"\n5\n{}"));
+    MalformedJsonException e = assertThrows(MalformedJsonException.class, lines::nextNode);
+    assertTrue(e.getMessage().startsWith("Malformed record on line 1:"), e.getMessage());
+    e = assertThrows(MalformedJsonException.class, lines::nextNode);
+    assertTrue(e.getMessage().startsWith("Malformed record on line 2:"), e.getMessage());
+    // the rest of the spanning record is a line of its own
+    assertThrows(MalformedJsonException.class, lines::nextNode);
+    e = assertThrows(MalformedJsonException.class, lines::nextNode);
+    assertTrue(e.getMessage().startsWith("Malformed record on line 4:"), e.getMessage());
+    assertThrows(MalformedJsonException.class, lines::nextNode);
+    assertEquals(JsonPrimitive.of(5), lines.nextNode());
+    assertEquals(7, lines.getLine());
+    assertEquals(new JsonObject(), lines.nextNode());
+    assertNull(lines.nextNode());
+
+    JsonLinesReader empty = new JsonLinesReader(new StringReader(" \n\n"));
+    assertFalse(empty.hasNext());
+    assertThrows(NoSuchElementException.class, empty::next);
+  }
+
+  @Test
+  @DisplayName("Parallel parsing")
+  void parallel() throws IOException {
+    Consumer<MalformedJsonException> failing = error -> {
+      throw new IllegalStateException(error);
+    };
+    StringBuilder lines = new StringBuilder();
+    for (int i = 0; i < 500; i++) {
+      lines.append("{\"id\":").append(i).append(",\"name\":\"\u017elu\u0165ou\u010dk\u00fd ").append(i).append("\"}\n");
+      if (i % 7 == 0) lines.append("\n");
+    }
+    byte[] bytes = lines.toString().getBytes(StandardCharsets.UTF_8);
+    List<String> expected = new JsonLinesReader(new ByteArrayInputStream(bytes)).stream().map(JsonNode::toString).collect(Collectors.toList());
+    assertEquals(500, expected.size());
+
+    Path path = Files.createTempFile("sampleJson", "lines");
+    // mapped files can not be deleted on some platforms until the mapping is garbage collected
+    path.toFile().deleteOnExit();
+    Files.write(path, bytes);
+    // tiny chunks, so the ends of the chunks fall in the middle of the records
+    for (int chunkSize : new int[]{1, 100, 1 << 20}) {
+      try (Stream<JsonNode> records = JsonLinesReader.parallelStream(path, true, failing, chunkSize)) {
+        assertEquals(expected, records.map(JsonNode::toString).collect(Collectors.toList()));
+      }
+      try (Stream<JsonNode> records = JsonLinesReader.parallelStream(path, false, failing, chunkSize)) {
+        assertEquals(expected.stream().sorted().collect(Collectors.toList()), records.map(JsonNode::toString).sorted().collect(Collectors.toList()));
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      assertEquals(expected, JsonLinesReader.parallelStream(buffer, true, failing, chunkSize).map(JsonNode::toString).collect(Collectors.toList()));
+      assertEquals(0, buffer.position());
+      // unordered streams pass on the records as they are parsed
+      Stream<JsonNode> unordered = JsonLinesReader.parallelStream(buffer, false, failing, chunkSize);
+      Set<String> seen = ConcurrentHashMap.newKeySet();
+      unordered.forEach(node -> seen.add(node.toString()));
+      assertEquals(new HashSet<>(expected), seen);
+      assertFalse(JsonLinesReader.parallelStream(buffer, false, failing, chunkSize).spliterator().hasCharacteristics(Spliterator.ORDERED));
+    }
+
+    ByteBuffer malformed = ByteBuffer.wrap("[1]\n[2]\n\n[3]\n[4,\n5]\n".getBytes(StandardCharsets.UTF_8));
+    IllegalStateException e = assertThrows(IllegalStateException.class, () -> JsonLinesReader.parallelStream(malformed, true, failing, 4).count());
+    assertTrue(e.getMessage().contains("Malformed record on line 5:"), e.getMessage());
+    Files.write(path, "[1]\n[2]\n[3] 4\n".getBytes(StandardCharsets.UTF_8));
+    try (Stream<JsonNode> records = JsonLinesReader.parallelStream(path, true, failing, 4)) {
+      e = assertThrows(IllegalStateException.class, records::count);
+      assertTrue(e.getMessage().contains("Malformed record on line 3:"), e.getMessage());
+    }
+    // the records before a malformed one are passed on before it is reached
+    Iterator<JsonNode> records = JsonLinesReader.parallelStream(malformed, true).iterator();
+    assertEquals("[1]", records.next().toString());
+    assertEquals("[2]", records.next().toString());
+
+    // malformed lines in the middle are reported and skipped, as by the sequential reader
+    for (int chunkSize : new int[]{1, 100, 1 << 20}) {
+      for (boolean ordered : new boolean[]{true, false}) {
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        Files.write(path, "[1]\n[2,\n3]\n[4]\n{\"a\":}\n[5]\n".getBytes(StandardCharsets.UTF_8));
+        try (Stream<JsonNode> parsed = JsonLinesReader.parallelStream(path, ordered, error -> errors.add(error.getMessage()), chunkSize)) {
+          List<String> nodes = parsed.map(JsonNode::toString).collect(Collectors.toList());
+          if (!ordered) Collections.sort(nodes);
+          assertEquals(Arrays.asList("[1]", "[4]", "[5]"), nodes);
+        }
+        Collections.sort(errors);
+        assertEquals(3, errors.size());
+        assertTrue(errors.get(0).startsWith("Malformed record on line 2:"), errors.get(0));
+        assertTrue(errors.get(1).startsWith("Malformed record on line 3:"), errors.get(1));
+        assertTrue(errors.get(2).startsWith("Malformed record on line 5:"), errors.get(2));
+        List<JsonNode> fromBuffer = new ArrayList<>();
+        JsonLinesReader.parallelStream(ByteBuffer.wrap(Files.readAllBytes(path)), true, error -> {}, chunkSize).forEachOrdered(fromBuffer::add);
+        assertEquals("[[1], [4], [5]]", fromBuffer.toString());
+      }
+    }
+  }
+}
@@ -3,8 +3,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
@@ -20,7 +24,7 @@ class JsonObjectTests {
     jsonObject.add("bool", new JsonPrimitive<>(false));
     jsonObject.add("str", new JsonPrimitive<>("str"));
     jsonObject.add("str2", new JsonPrimitive<>("str2"));
-    assertEquals("{\"str\":\"str\",\"bool\":false,\"str2\":\"str2\"}", jsonObject.toString());
+    assertEquals("{\"bool\":false,\"str\":\"str\",\"str2\":\"str2\"}", jsonObject.toString());
   }
 
   @Test
@@ -64,4 +68,72 @@ class JsonObjectTests {
     Assertions.assertEquals(true, node.isJsonObject());
     Assertions.assertEquals(jsonObject.getChildren(), node.getAsJsonObject().getChildren());
   }
+
+  @Test
+  @DisplayName("Insertion order")
+  void insertionOrder() throws MalformedJsonException {
+    StringBuilder expected = new StringBuilder("{");
+    for (int i = 20; i > 0; i--) {
+      jsonObject.add("key" + i, new JsonPrimitive<>(i));
+      expected.append("\"key").append(i).append("\":").append(i).append(',');
+    }
+    // replacing the value keeps the position of the key
+    jsonObject.add("str", new JsonPrimitive<>("new"));
+    jsonObject.remove("bool");
+    jsonObject.remove("key7");
+    String json = "{\"str\":\"new\",\"str2\":\"str2\"," + expected.substring(1, expected.length() - 1).replace("\"key7\":7,", "") + "}";
+    assertEquals(json, jsonObject.toString());
+    assertEquals(json, new JsonObject(json).toString());
+    assertEquals(new JsonPrimitive<>(13), jsonObject.get("key13"));
+    assertEquals(false, jsonObject.has("key7"));
+
+    Map<String, JsonNode> hashMap = new HashMap<>(jsonObject.getChildren());
+    assertEquals(new JsonObject(hashMap), jsonObject);
+    assertEquals(jsonObject, new JsonObject(hashMap));
+    assertEquals(hashMap.hashCode(), jsonObject.getChildren().hashCode());
+  }
+
+  @Test
+  @DisplayName("Random modifications")
+  void randomModifications() {
+    Random random = new Random(5);
+    Map<String, JsonNode> expected = new LinkedHashMap<>();
+    CompactJsonMap map = new CompactJsonMap();
+    for (int i = 0; i < 5000; i++) {
+      String key = "k" + random.nextInt(random.nextBoolean() ? 12 : 200);
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(key), map.remove(key));
+      } else {
+        JsonNode value = JsonPrimitive.of(i);
+        expected.put(key, value);
+        map.put(key, value);
+      }
+      assertEquals(expected.containsKey(key), map.containsKey(key));
+      if (i % 100 == 0) assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keySet()));
+    }
+    // removing through the views keeps the index consistent
+    Iterator<String> keys = map.keySet().iterator();
+    while (keys.hasNext()) {
+      if (keys.next().length() % 2 == 0) keys.remove();
+    }
+    expected.keySet().removeIf(key -> key.length() % 2 == 0);
+    assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keySet()));
+    assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(map.values()));
+    for (String key : expected.keySet()) assertEquals(expected.get(key), map.get(key));
+    assertEquals(expected, map);
+
+    // removing most keys of a large object compacts it, the order of the rest is kept
+    for (int i = 0; i < 10000; i++) {
+      expected.put("n" + i, JsonPrimitive.of(i));
+      map.put("n" + i, JsonPrimitive.of(i));
+    }
+    for (int i = 0; i < 10000; i++) {
+      if (i % 10 != 0) assertEquals(expected.remove("n" + i), map.remove("n" + i));
+    }
+    expected.put("last", JsonPrimitive.of(true));
+    map.put("last", JsonPrimitive.of(true));
+    assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keySet()));
+    for (String key : expected.keySet()) assertEquals(expected.get(key), map.get(key));
+    assertEquals(null, map.get("n1"));
+  }
 }
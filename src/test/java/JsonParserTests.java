@@ -4,6 +4,15 @@ import org.junit.jupiter.api.Test;
 
 import java.io.*;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -43,6 +52,242 @@ class JsonParserTests {
     }
   }
 
+  @Test
+  @DisplayName("Create from streams")
+  void streamParsing() throws MalformedJsonException {
+    root.add("f", new JsonPrimitive<>("\u017elu\u0165ou\u010dk\u00fd k\u016f\u0148 \ud83d\udc0e"));
+    String json = root.toString(2);
+    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    assertEquals(root, JsonParser.parse(new ByteArrayInputStream(bytes)));
+    assertEquals(root, JsonParser.parse(Channels.newChannel(new ByteArrayInputStream(bytes))));
+    // reader which returns a single character per read, so every token is split between buffers
+    Reader slowReader = new StringReader(json) {
+      @Override
+      public int read(char[] cbuf, int off, int len) throws IOException {
+        return super.read(cbuf, off, Math.min(len, 1));
+      }
+    };
+    assertEquals(root, JsonParser.parse(slowReader));
+    assertThrows(MalformedJsonException.class, () -> JsonParser.parse(new StringReader("{\"a\":\ntrue}}")));
+  }
+
+  @Test
+  @DisplayName("Create from bytes")
+  void byteParsing() throws MalformedJsonException {
+    root.add("f", new JsonPrimitive<>("\u017elu\u0165ou\u010dk\u00fd \"k\u016f\u0148\" \ud83d\udc0e"));
+    byte[] bytes = root.toString(2).getBytes(StandardCharsets.UTF_8);
+    assertEquals(root, JsonParser.parse(bytes));
+    ByteBuffer heap = ByteBuffer.allocate(bytes.length + 10);
+    heap.position(3);
+    heap.put(bytes);
+    heap.position(3).limit(3 + bytes.length);
+    assertEquals(root, JsonParser.parse(heap.slice()));
+    assertEquals(root, JsonParser.parse(heap));
+    assertEquals(3, heap.position());
+    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+    direct.put(bytes).flip();
+    assertEquals(root, JsonParser.parse(direct));
+    // stream which returns a single byte per read, so multi-byte characters are split between buffers
+    InputStream slowStream = new ByteArrayInputStream(bytes) {
+      @Override
+      public synchronized int read(byte[] b, int off, int len) {
+        return super.read(b, off, Math.min(len, 1));
+      }
+    };
+    assertEquals(root, JsonParser.parse(slowStream));
+    JsonReader reader = new JsonReader("[\"\u00e1\\u00e9\"]".getBytes(StandardCharsets.UTF_8));
+    reader.beginArray();
+    assertEquals("\u00e1\u00e9", reader.nextString());
+  }
+
+  @Test
+  @DisplayName("Create from mapped file")
+  void mappedFileParsing() throws IOException, MalformedJsonException {
+    root.add("f", new JsonPrimitive<>("\u017elu\u0165ou\u010dk\u00fd k\u016f\u0148"));
+    Path path = Files.createTempFile("sampleJson", "in");
+    // mapped files can not be deleted on some platforms until the mapping is garbage collected
+    path.toFile().deleteOnExit();
+    Files.write(path, root.toString(2).getBytes(StandardCharsets.UTF_8));
+    assertEquals(root, JsonParser.parse(path));
+    // tiny windows, so values are split between mappings
+    try (JsonReader reader = new JsonReader(new MappedFile(path, 3))) {
+      assertEquals(root, JsonParser.parse(reader));
+      // the windows are mapped again when seeking back
+      reader.seek(0);
+      assertEquals(root, JsonParser.parse(reader));
+      assertEquals(root, JsonParser.parseLazy(reader, 0));
+    }
+  }
+
+  @Test
+  @DisplayName("Lazy parsing")
+  void lazyParsing() throws MalformedJsonException {
+    for (int i = 0; i < 20; i++) root.add("key" + i, new JsonPrimitive<>(i * 10));
+    String json = root.toString(2);
+    JsonNode lazyString = JsonParser.parseLazy(json);
+    JsonNode lazyBytes = JsonParser.parseLazy(json.getBytes(StandardCharsets.UTF_8));
+    JsonNode lazyBuffer = JsonParser.parseLazy(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)));
+    assertEquals(root, lazyString);
+    assertEquals(root, lazyBytes);
+    assertEquals(root, lazyBuffer);
+
+    JsonObject lazy = JsonParser.parseLazy(json).getAsJsonObject();
+    assertEquals(new JsonPrimitive<>(190), lazy.get("key19"));
+    assertEquals(new JsonPrimitive<>(56), lazy.get("e").getAsJsonArray().get(2));
+    assertEquals("bString", lazy.get("a").getAsJsonObject().get("b").getAsJsonPrimitive().getValue());
+    lazy.add("key19", new JsonPrimitive<>("changed"));
+    lazy.remove("key0");
+    lazy.get("e").getAsJsonArray().add(new JsonPrimitive<>(false));
+    lazy.get("e").getAsJsonArray().remove(0);
+    root.add("key19", new JsonPrimitive<>("changed"));
+    root.remove("key0");
+    root.get("e").getAsJsonArray().add(new JsonPrimitive<>(false));
+    root.get("e").getAsJsonArray().remove(0);
+    assertEquals(root, lazy);
+    assertEquals(root, lazy.deepCopy());
+
+    // null values are not mistaken for values not parsed yet
+    lazy.add("fresh", null);
+    lazy.add("key5", null);
+    assertEquals(null, lazy.get("fresh"));
+    assertEquals(null, lazy.get("key5"));
+    assertEquals(true, lazy.has("fresh"));
+    lazy.remove("fresh");
+    lazy.remove("key5");
+    root.remove("key5");
+    for (int i = 1; i < 18; i += 2) {
+      lazy.remove("key" + i);
+      root.remove("key" + i);
+    }
+    lazy.add("key3", new JsonPrimitive<>(3));
+    root.add("key3", new JsonPrimitive<>(3));
+    assertEquals(root.toString(), lazy.toString());
+    assertEquals(new JsonPrimitive<>(180), lazy.get("key18"));
+
+    assertThrows(MalformedJsonException.class, () -> JsonParser.parseLazy("{\"a\":[1,2}"));
+    assertThrows(MalformedJsonException.class, () -> JsonParser.parseLazy("{\"a\":{\"b\":nul}}"));
+    assertThrows(MalformedJsonException.class, () -> JsonParser.parseLazy("[1] 2"));
+  }
+
+  @Test
+  @DisplayName("Structural index engine")
+  void structuralIndex() throws MalformedJsonException {
+    root.add("f", new JsonPrimitive<>("\u017elu\u0165ou\u010dk\u00fd \"k\u016f\u0148\" [{,:}]"));
+    StringBuilder escapes = new StringBuilder("[");
+    // escaped quotes and backslashes at every offset of the 64 byte blocks
+    for (int i = 0; i < 130; i++) {
+      StringBuilder value = new StringBuilder();
+      for (int j = 0; j < i; j++) value.append('x');
+      escapes.append('"').append(value).append("\\\"\\\\\\u0041\\n").append(value).append("\",");
+    }
+    escapes.append("{\"\\\\\":\"\\\\\"}]");
+    for (String json : new String[]{root.toString(), root.toString(3), escapes.toString(), "[1,2,]", "{\"a\":{},\"b\":[],}", "[ .5 , true,false ]"}) {
+      assertEquals(JsonParser.parse(json), JsonParser.parse(json, JsonParser.Engine.STRUCTURAL_INDEX));
+      assertEquals(JsonParser.parse(json), JsonParser.parse(json.getBytes(StandardCharsets.UTF_8), JsonParser.Engine.STRUCTURAL_INDEX));
+      assertEquals(JsonParser.parse(json), JsonParser.parse(json, JsonParser.Engine.PARALLEL));
+      assertParallel(json);
+    }
+    String[] incorrect = {"", "12", "{", "{\"asd\"::52}", "[\"asd\":52]", "{\"asd\":52.", "[true,false,\"]",
+            "[true,..25]", "[true,\"asds\"\"]", "[true,falsee]", "[12 34]", "{\"a\"x:1}", "[1]x", "[,1]", "{,}",
+            "[\"a\"b]", "[nul]", "[1}", "{\"a\":1]"};
+    for (String json : incorrect) {
+      assertThrows(MalformedJsonException.class, () -> JsonParser.parse(json));
+      assertThrows(MalformedJsonException.class, () -> JsonParser.parse(json, JsonParser.Engine.STRUCTURAL_INDEX));
+      assertThrows(MalformedJsonException.class, () -> JsonParser.parse(json, JsonParser.Engine.PARALLEL));
+    }
+  }
+
+  @Test
+  @DisplayName("Parallel parsing of top level array")
+  void parallelParsing() throws MalformedJsonException {
+    JsonArray array = new JsonArray();
+    for (int i = 0; i < 1000; i++) {
+      JsonObject element = root.deepCopy();
+      element.add("id", new JsonPrimitive<>(i));
+      array.add(i % 3 == 0 ? element : i % 3 == 1 ? new JsonPrimitive<>("[\"" + i + "\",]") : new JsonArray());
+    }
+    for (String json : new String[]{array.toString(), array.toString(2), "[]", " [ 1 , ] ", "[[],{},]"}) {
+      assertEquals(JsonParser.parse(json), JsonParser.parse(json, JsonParser.Engine.PARALLEL));
+      assertParallel(json);
+    }
+    String[] incorrect = {"[", "[1 2]", "[1,,2]", "[1,2]]", "[{\"a\":1],2]", "[\"a\":1]", "[1,2,3,[4 5],6]", "[1,2]x"};
+    for (String json : incorrect) {
+      assertThrows(MalformedJsonException.class, () -> JsonParser.parse(json, JsonParser.Engine.PARALLEL));
+    }
+    // the ends of the chunks fall into strings, escape sequences and nested values
+    String unterminated = array.toString().substring(0, array.toString().length() - 1);
+    String unclosed = unterminated.substring(0, unterminated.lastIndexOf('"'));
+    for (String json : new String[]{unterminated, unclosed, array.toString() + "]", array.toString() + " {}"}) {
+      byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+      for (int chunks : new int[]{2, 7, 1000}) {
+        assertThrows(MalformedJsonException.class, () -> StructuralIndexParser.parseParallel(bytes, 0, bytes.length, chunks));
+      }
+    }
+  }
+
+  private static void assertParallel(String json) throws MalformedJsonException {
+    byte[] bytes = (" " + json + " ").getBytes(StandardCharsets.UTF_8);
+    for (int chunks : new int[]{2, 3, 7, 1000}) {
+      assertEquals(JsonParser.parse(json), StructuralIndexParser.parseParallel(bytes, 1, bytes.length - 2, chunks));
+    }
+  }
+
+  @Test
+  @DisplayName("Whitespace handling")
+  void whitespace() throws MalformedJsonException {
+    assertEquals(root, JsonParser.parse(root.toString(2)));
+    assertEquals(root, JsonParser.parse(" \n\t" + root.toString(4) + "\r\n "));
+    JsonObject spaced = new JsonObject("{ \"a b\" : \" c\td \" , \"e\" : [ true , false , ] , }");
+    assertEquals(new JsonPrimitive<>(" c\td "), spaced.get("a b"));
+    assertEquals(2, spaced.get("e").getAsJsonArray().getChildren().size());
+    assertThrows(MalformedJsonException.class, () -> new JsonArray("[tr ue]"));
+    assertThrows(MalformedJsonException.class, () -> new JsonArray("[12 34]"));
+  }
+
+  @Test
+  @DisplayName("Numbers")
+  void numbers() throws MalformedJsonException {
+    JsonArray arr = new JsonArray("[5,0,.5,12.25,1651656156186186186168168]");
+    assertEquals(new JsonPrimitive<>(5), arr.get(0));
+    assertEquals(new JsonPrimitive<>(0), arr.get(1));
+    assertEquals(new JsonPrimitive<>(0.5), arr.get(2));
+    assertEquals(new JsonPrimitive<>(12.25), arr.get(3));
+    assertEquals(new JsonPrimitive<>(new BigInteger("1651656156186186186168168")), arr.get(4));
+
+    arr = new JsonArray("[-5,-0.25,1e3,2.5E-3,-1E+2,9223372036854775807,-9223372036854775808,9223372036854775808]");
+    assertEquals(-5L, arr.get(0).getAsJsonPrimitive().getValue());
+    assertEquals(-0.25, arr.get(1).getAsJsonPrimitive().getAsDouble());
+    assertEquals(1000.0, arr.get(2).getAsJsonPrimitive().getValue());
+    assertEquals(0.0025, arr.get(3).getAsJsonPrimitive().getAsDouble());
+    assertEquals(-100.0, arr.get(4).getAsJsonPrimitive().getAsDouble());
+    assertEquals(Long.MAX_VALUE, arr.get(5).getAsJsonPrimitive().getAsLong());
+    assertEquals(Long.MIN_VALUE, arr.get(6).getAsJsonPrimitive().getAsLong());
+    assertEquals(BigInteger.ONE.shiftLeft(63), arr.get(7).getAsJsonPrimitive().getValue());
+
+    // decimal numbers are rounded exactly as by Double.parseDouble
+    Random random = new Random(42);
+    StringBuilder json = new StringBuilder("[");
+    List<String> numbers = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      String number = i % 3 == 0 ? Double.toString(Double.longBitsToDouble(random.nextLong()))
+              : i % 3 == 1 ? random.nextInt(1000000) + "." + random.nextInt(1000000) + "e" + (random.nextInt(40) - 20)
+              : Long.toString(random.nextLong() >>> 1) + random.nextInt(100) + "e" + (random.nextInt(640) - 340);
+      if (number.contains("N") || number.contains("I")) continue;
+      numbers.add(number);
+      json.append(number).append(',');
+    }
+    numbers.addAll(Arrays.asList("0.1", "-0.0", "1e23", "2.2250738585072014E-308", "4.9e-324", "1.7976931348623157e308",
+            "9007199254740993.0", "123456789012345678901234567890.5", "1e400", "-1e-400",
+            "1.00000000000000011102230246251565404236316680908203125", "1.00000000000000011102230246251565404236316680908203126",
+            "2.2250738585072011e-308", "7.3177701707893310e+15", "8.41e21"));
+    for (int i = numbers.size() - 15; i < numbers.size(); i++) json.append(numbers.get(i)).append(',');
+    JsonArray parsed = new JsonArray(json.append(']').toString());
+    for (int i = 0; i < numbers.size(); i++) {
+      double expected = Double.parseDouble(numbers.get(i));
+      assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits((Double) parsed.get(i).getAsJsonPrimitive().getValue()), numbers.get(i));
+    }
+  }
+
   @Test
   @DisplayName("Incorrect json")
   void incorrect() {
@@ -58,5 +303,10 @@ class JsonParserTests {
     assertThrows(MalformedJsonException.class, () -> new JsonArray("[true,.25.]"));
     assertThrows(MalformedJsonException.class, () -> new JsonArray("[true,\"asds\"\"]"));
     assertThrows(MalformedJsonException.class, () -> new JsonArray("[true,falsee]"));
+    assertThrows(MalformedJsonException.class, () -> new JsonArray("[-]"));
+    assertThrows(MalformedJsonException.class, () -> new JsonArray("[--1]"));
+    assertThrows(MalformedJsonException.class, () -> new JsonArray("[1e]"));
+    assertThrows(MalformedJsonException.class, () -> new JsonArray("[1e+]"));
+    assertThrows(MalformedJsonException.class, () -> new JsonArray("[1.2e3.4]"));
   }
 }
@@ -0,0 +1,161 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("Json patch tests")
+class JsonPatchTests {
+  @Test
+  @DisplayName("Null values")
+  void nullValues() throws MalformedJsonException {
+    JsonNode node = JsonParser.parse("{\"a\":null,\"b\":[null,1]}");
+    JsonPrimitive<?> a = node.getAsJsonObject().get("a").getAsJsonPrimitive();
+    assertEquals(true, a.isNull());
+    assertEquals(false, a.isString());
+    assertEquals(false, JsonPrimitive.of(0).isNull());
+    assertEquals(JsonPrimitive.ofNull(), new JsonPrimitive<>(null));
+    assertNotEquals(JsonPrimitive.ofNull(), JsonPrimitive.of("null"));
+    assertEquals("{\"a\":null,\"b\":[null,1]}", node.toString());
+    assertEquals(node, JsonParser.parse(node.toString().getBytes(), JsonParser.Engine.STRUCTURAL_INDEX));
+  }
+
+  @Test
+  @DisplayName("Applying json patch")
+  void applyPatch() throws MalformedJsonException, JsonPatchException {
+    JsonNode document = JsonParser.parse("{\"a\":{\"b\":[1,2,3],\"c\":\"str\"},\"d\":{\"e\":true},\"a/b~\":0}");
+    JsonPatch patch = new JsonPatch("[{\"op\":\"add\",\"path\":\"/a/b/1\",\"value\":5},"
+            + "{\"op\":\"remove\",\"path\":\"/a/b/0\"},"
+            + "{\"op\":\"add\",\"path\":\"/a/b/-\",\"value\":{\"x\":null}},"
+            + "{\"op\":\"replace\",\"path\":\"/a/c\",\"value\":\"changed\"},"
+            + "{\"op\":\"copy\",\"from\":\"/a/b\",\"path\":\"/copy\"},"
+            + "{\"op\":\"move\",\"from\":\"/a/c\",\"path\":\"/moved\"},"
+            + "{\"op\":\"add\",\"path\":\"/a/b/3/y\",\"value\":1},"
+            + "{\"op\":\"replace\",\"path\":\"/a~1b~0\",\"value\":1},"
+            + "{\"op\":\"test\",\"path\":\"/copy/3\",\"value\":{\"x\":null}}]");
+    JsonNode expected = JsonParser.parse("{\"a\":{\"b\":[5,2,3,{\"x\":null,\"y\":1}]},\"d\":{\"e\":true},\"a/b~\":1,"
+            + "\"copy\":[5,2,3,{\"x\":null}],\"moved\":\"changed\"}");
+    JsonNode copy = document.deepCopy();
+
+    // structural sharing leaves the document untouched and shares the unchanged subtrees
+    JsonNode patched = patch.apply(document);
+    assertEquals(expected, patched);
+    assertEquals(copy, document);
+    assertSame(document.getAsJsonObject().get("d"), patched.getAsJsonObject().get("d"));
+
+    JsonNode inPlace = patch.applyInPlace(document);
+    assertSame(document, inPlace);
+    assertEquals(expected, document);
+    // the values of the patch were not modified
+    assertEquals(expected, patch.apply(copy));
+
+    assertEquals(JsonPrimitive.of(5), new JsonPatch("[{\"op\":\"replace\",\"path\":\"\",\"value\":5}]").apply(copy));
+    assertThrows(JsonPatchException.class, () -> new JsonPatch("[{\"op\":\"remove\",\"path\":\"/missing\"}]").apply(copy));
+    assertThrows(JsonPatchException.class, () -> new JsonPatch("[{\"op\":\"add\",\"path\":\"/a/b/4\",\"value\":1}]").apply(copy));
+    assertThrows(JsonPatchException.class, () -> new JsonPatch("[{\"op\":\"remove\",\"path\":\"/a/b/01\"}]").apply(copy));
+    assertThrows(JsonPatchException.class, () -> new JsonPatch("[{\"op\":\"test\",\"path\":\"/d/e\",\"value\":false}]").apply(copy));
+    assertThrows(JsonPatchException.class, () -> new JsonPatch("[{\"op\":\"move\",\"from\":\"/a\",\"path\":\"/a/b/0\"}]").apply(copy));
+    assertThrows(JsonPatchException.class, () -> new JsonPatch("[{\"op\":\"add\",\"path\":\"a\",\"value\":1}]").apply(copy));
+    assertThrows(JsonPatchException.class, () -> new JsonPatch("[{\"op\":\"invalid\",\"path\":\"/a\"}]").apply(copy));
+  }
+
+  @Test
+  @DisplayName("Creating json patch")
+  void createPatch() throws MalformedJsonException, JsonPatchException {
+    JsonNode source = JsonParser.parse("{\"a\":{\"b\":[1,2,3,4,5,6,7,8],\"c\":\"str\"},\"d\":1,\"e\":{\"f\":1}}");
+    JsonNode target = JsonParser.parse("{\"a\":{\"b\":[1,3,4,5,6,7,8,9],\"c\":{\"x\":1}},\"e\":[],\"g\":null}");
+    JsonPatch patch = JsonPatch.create(source, target);
+    assertEquals("[{\"op\":\"remove\",\"path\":\"/d\"},{\"op\":\"replace\",\"path\":\"/e\",\"value\":[]},"
+            + "{\"op\":\"remove\",\"path\":\"/a/b/1\"},{\"op\":\"add\",\"path\":\"/a/b/7\",\"value\":9},"
+            + "{\"op\":\"replace\",\"path\":\"/a/c\",\"value\":{\"x\":1}},{\"op\":\"add\",\"path\":\"/g\",\"value\":null}]",
+            patch.toString());
+    assertEquals(target, patch.apply(source));
+    assertEquals("[]", JsonPatch.create(source, source.deepCopy()).toString());
+
+    JsonMergePatch mergePatch = JsonMergePatch.create(source, target);
+    assertEquals("{\"d\":null,\"e\":[],\"a\":{\"b\":[1,3,4,5,6,7,8,9],\"c\":{\"x\":1}},\"g\":null}", mergePatch.toString());
+  }
+
+  @Test
+  @DisplayName("Applying json merge patch")
+  void applyMergePatch() throws MalformedJsonException {
+    // the example of RFC 7386
+    JsonNode document = JsonParser.parse("{\"title\":\"Goodbye!\",\"author\":{\"givenName\":\"John\",\"familyName\":\"Doe\"},"
+            + "\"tags\":[\"example\",\"sample\"],\"content\":\"This will be unchanged\"}");
+    JsonMergePatch patch = new JsonMergePatch(JsonParser.parse("{\"title\":\"Hello!\",\"phoneNumber\":\"+01-123-456-7890\","
+            + "\"author\":{\"familyName\":null},\"tags\":[\"example\"]}"));
+    JsonNode expected = JsonParser.parse("{\"title\":\"Hello!\",\"author\":{\"givenName\":\"John\"},\"tags\":[\"example\"],"
+            + "\"content\":\"This will be unchanged\",\"phoneNumber\":\"+01-123-456-7890\"}");
+    JsonNode copy = document.deepCopy();
+    assertEquals(expected, patch.apply(document));
+    assertEquals(copy, document);
+    assertSame(document, patch.applyInPlace(document));
+    assertEquals(expected, document);
+
+    assertEquals(JsonParser.parse("[1]"), new JsonMergePatch(JsonParser.parse("[1]")).apply(copy));
+    assertEquals(JsonParser.parse("{\"a\":{\"b\":1}}"),
+            new JsonMergePatch(JsonParser.parse("{\"a\":{\"b\":1,\"c\":null}}")).apply(JsonPrimitive.of(5)));
+  }
+
+  @Test
+  @DisplayName("Generated patches")
+  void generatedPatches() throws JsonPatchException {
+    Random random = new Random(3);
+    for (int round = 0; round < 300; round++) {
+      JsonNode source = randomNode(random, 3);
+      JsonNode target = random.nextInt(4) == 0 ? randomNode(random, 3) : mutate(source.deepCopy(), random);
+      JsonNode sourceCopy = source.deepCopy();
+      assertEquals(target, JsonPatch.create(source, target).apply(source));
+      assertEquals(sourceCopy, source);
+      assertEquals(target, JsonPatch.create(source, target).applyInPlace(source.deepCopy()));
+      assertEquals(target, JsonMergePatch.create(source, target).apply(source));
+      assertEquals(sourceCopy, source);
+    }
+  }
+
+  private static JsonNode randomNode(Random random, int depth) {
+    int type = random.nextInt(depth > 0 ? 5 : 3);
+    if (type == 0) return JsonPrimitive.of(random.nextInt(5));
+    if (type == 1) return JsonPrimitive.of("s" + random.nextInt(3));
+    if (type == 2) return JsonPrimitive.of(random.nextBoolean());
+    if (type == 3) {
+      JsonArray array = new JsonArray();
+      for (int i = random.nextInt(6); i > 0; i--) array.add(randomNode(random, depth - 1));
+      return array;
+    }
+    JsonObject object = new JsonObject();
+    for (int i = random.nextInt(5); i > 0; i--) object.add("k" + random.nextInt(6), randomNode(random, depth - 1));
+    return object;
+  }
+
+  private static JsonNode mutate(JsonNode node, Random random) {
+    if (node.isJsonObject()) {
+      JsonObject object = node.getAsJsonObject();
+      for (String key : new ArrayList<>(object.getChildren().keySet())) {
+        int change = random.nextInt(6);
+        if (change == 0) object.remove(key);
+        else if (change == 1) object.add(key, randomNode(random, 2));
+        else object.add(key, mutate(object.get(key), random));
+      }
+      if (random.nextBoolean()) object.add("new" + random.nextInt(3), randomNode(random, 2));
+      return object;
+    }
+    if (node.isJsonArray()) {
+      JsonArray array = node.getAsJsonArray();
+      for (int i = array.getChildren().size() - 1; i >= 0; i--) {
+        int change = random.nextInt(6);
+        if (change == 0) array.remove(i);
+        else if (change == 1) array.add(i, randomNode(random, 2));
+        else array.set(i, mutate(array.get(i), random));
+      }
+      if (random.nextBoolean()) array.add(randomNode(random, 2));
+      return array;
+    }
+    return random.nextInt(3) == 0 ? randomNode(random, 1) : node;
+  }
+}
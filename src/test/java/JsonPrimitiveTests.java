@@ -3,10 +3,13 @@ import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @DisplayName("Json primitive tests")
 class JsonPrimitiveTests {
@@ -68,6 +71,40 @@ class JsonPrimitiveTests {
     assertNotEquals(c, b);
   }
 
+  @Test
+  @DisplayName("Specialized primitives")
+  void specializedPrimitives() {
+    assertSame(JsonPrimitive.of(true), JsonPrimitive.of(true));
+    assertSame(JsonPrimitive.of(7), JsonPrimitive.of(7L));
+    assertEquals(JsonPrimitive.of(false), new JsonPrimitive<>(false));
+    assertEquals(JsonPrimitive.of(123456789012L), new JsonPrimitive<>(123456789012L));
+    assertEquals(new JsonPrimitive<>(new BigInteger("5")), JsonPrimitive.of(5));
+    assertEquals(JsonPrimitive.of(5.0), JsonPrimitive.of(5));
+    assertEquals(JsonPrimitive.of(Double.NaN), new JsonPrimitive<>(Double.NaN));
+    assertNotEquals(JsonPrimitive.of(5.5), JsonPrimitive.of(5));
+    assertNotEquals(JsonPrimitive.of("5"), JsonPrimitive.of(5));
+    assertNotEquals(JsonPrimitive.of(0.0), JsonPrimitive.ofNull());
+    assertNotEquals(JsonPrimitive.ofNull(), JsonPrimitive.of(0));
+    // integral and decimal numbers are equal only if they are exactly the same number
+    assertEquals(JsonPrimitive.of(-0.0), JsonPrimitive.of(0));
+    assertEquals(JsonPrimitive.of(0x1p53), JsonPrimitive.of(1L << 53));
+    assertNotEquals(JsonPrimitive.of(0x1p53), JsonPrimitive.of((1L << 53) + 1));
+    assertNotEquals(JsonPrimitive.of(0x1p63), JsonPrimitive.of(Long.MAX_VALUE));
+
+    JsonPrimitive<Long> longNum = JsonPrimitive.of(-42);
+    assertEquals(true, longNum.isNumber());
+    assertEquals(false, longNum.isString());
+    assertEquals(-42L, longNum.getAsLong());
+    assertEquals(-42.0, longNum.getAsDouble());
+    assertEquals(Long.valueOf(-42), longNum.getValue());
+    assertEquals(2L, JsonPrimitive.of(2.75).getAsLong());
+    assertEquals(3.0, new JsonPrimitive<>(3).getAsDouble());
+    assertEquals(true, JsonPrimitive.of(true).getAsBoolean());
+    assertThrows(ClassCastException.class, () -> JsonPrimitive.of("str").getAsLong());
+    assertEquals("[-42,2.75,true,\"str\"]", new JsonArray(Arrays.asList(longNum, JsonPrimitive.of(2.75),
+            JsonPrimitive.of(true), JsonPrimitive.of("str"))).toString());
+  }
+
   @Test
   @DisplayName("Different type")
   void differentType() {
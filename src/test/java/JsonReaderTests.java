@@ -0,0 +1,126 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("Json reader tests")
+class JsonReaderTests {
+  @Test
+  @DisplayName("Token stream")
+  void tokens() throws MalformedJsonException {
+    JsonReader reader = new JsonReader("{\"a\": [1, 2.5, true], \"b\" : null, \"c\": \"str\"}");
+    assertEquals(JsonToken.BEGIN_OBJECT, reader.peek());
+    reader.beginObject();
+    assertEquals(JsonToken.NAME, reader.peek());
+    assertEquals("a", reader.nextName());
+    reader.beginArray();
+    assertEquals(1L, reader.nextLong());
+    assertEquals(JsonToken.NUMBER, reader.peek());
+    assertEquals(2.5, reader.nextDouble());
+    assertEquals(true, reader.nextBoolean());
+    assertEquals(false, reader.hasNext());
+    reader.endArray();
+    assertEquals("b", reader.nextName());
+    assertEquals(JsonToken.NULL, reader.peek());
+    reader.nextNull();
+    assertEquals("c", reader.nextName());
+    assertEquals("str", reader.nextString());
+    reader.endObject();
+    assertEquals(JsonToken.END_DOCUMENT, reader.peek());
+  }
+
+  @Test
+  @DisplayName("Skipping values")
+  void skipping() throws MalformedJsonException {
+    JsonReader reader = new JsonReader(new StringReader("{\"big\":{\"x\":[[1,2],{\"y\":\"}]\"}],\"z\":false},\"id\":42}"));
+    reader.beginObject();
+    assertEquals("big", reader.nextName());
+    reader.skipValue();
+    assertEquals("id", reader.nextName());
+    assertEquals(42L, reader.nextLong());
+    reader.endObject();
+    assertEquals(JsonToken.END_DOCUMENT, reader.peek());
+  }
+
+  @Test
+  @DisplayName("Escapes and multiple values")
+  void escapes() throws MalformedJsonException {
+    JsonReader reader = new JsonReader("[\"a\\\"b\\\\c\\n\\u0041\\/\",] {}");
+    reader.beginArray();
+    assertEquals("a\"b\\c\nA/", reader.nextString());
+    reader.endArray();
+    reader.beginObject();
+    reader.endObject();
+    assertEquals(JsonToken.END_DOCUMENT, reader.peek());
+  }
+
+  @Test
+  @DisplayName("Numbers")
+  void numbers() throws MalformedJsonException {
+    JsonReader reader = new JsonReader(new StringReader("[-12, 3.5e2, 12345678901234567890, -9223372036854775808, 1E-2, 7, -0]"));
+    reader.beginArray();
+    assertEquals(-12L, reader.nextLong());
+    assertEquals(350.0, reader.nextDouble());
+    assertThrows(NumberFormatException.class, reader::nextLong);
+    assertEquals(Long.MIN_VALUE, reader.nextLong());
+    reader.skipValue();
+    assertEquals(7.0, reader.nextDouble());
+    assertEquals(0, reader.nextNumber());
+    reader.endArray();
+  }
+
+  @Test
+  @DisplayName("Symbol tables")
+  void symbolTables() throws MalformedJsonException {
+    String json = "[{\"id\":\"on\",\"n\u00e1zov\":\"x\"},{\"id\":\"on\",\"n\u00e1zov\":\"y\"}]";
+    for (JsonReader reader : new JsonReader[]{new JsonReader(json), new JsonReader(json.getBytes(StandardCharsets.UTF_8))}) {
+      reader.setKeyTable(new JsonSymbolTable());
+      reader.setValueTable(new JsonSymbolTable(16));
+      String[] strings = new String[8];
+      reader.beginArray();
+      for (int i = 0; i < strings.length; i += 4) {
+        reader.beginObject();
+        for (int j = i; j < i + 4; j++) strings[j] = j % 2 == 0 ? reader.nextName() : reader.nextString();
+        reader.endObject();
+      }
+      reader.endArray();
+      assertEquals("[id, on, n\u00e1zov, x, id, on, n\u00e1zov, y]", Arrays.toString(strings));
+      assertSame(strings[0], strings[4]);
+      assertSame(strings[1], strings[5]);
+      assertSame(strings[2], strings[6]);
+    }
+
+    // evicted and long strings are still read correctly
+    StringBuilder longKey = new StringBuilder();
+    for (int i = 0; i < 100; i++) longKey.append('k');
+    JsonReader reader = new JsonReader("{\"a\":1,\"b\":2,\"a\":3,\"" + longKey + "\":4}");
+    reader.setKeyTable(new JsonSymbolTable(1));
+    reader.beginObject();
+    assertEquals("a", reader.nextName());
+    reader.skipValue();
+    assertEquals("b", reader.nextName());
+    reader.skipValue();
+    assertEquals("a", reader.nextName());
+    reader.skipValue();
+    assertEquals(longKey.toString(), reader.nextName());
+  }
+
+  @Test
+  @DisplayName("Incorrect tokens")
+  void incorrect() throws MalformedJsonException {
+    JsonReader reader = new JsonReader("[1.5, \"str\"]");
+    reader.beginArray();
+    assertThrows(NumberFormatException.class, reader::nextLong);
+    assertThrows(MalformedJsonException.class, reader::nextName);
+    assertThrows(MalformedJsonException.class, () -> new JsonReader("{\"a\" 1}").skipValue());
+    assertThrows(MalformedJsonException.class, () -> new JsonReader("[nul]").skipValue());
+    assertEquals(JsonToken.END_DOCUMENT, new JsonReader(" \n").peek());
+    assertThrows(MalformedJsonException.class, () -> new JsonReader("").skipValue());
+  }
+}